@@ -0,0 +1,31 @@
+package com.ensat.benchmarks;
+
+import com.ensat.services.FileStorageService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Content type lookup done on every view request
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ContentTypeBenchmark {
+
+    private final String[] names = {
+        "3f2a1b6c-0d4e-4f7a-9b8c-1d2e3f4a5b6c.jpg",
+        "report.PDF",
+        "styles.min.css",
+        "archive.tar.gz",
+        "no-extension"
+    };
+
+    @Benchmark
+    public void determineContentType(Blackhole blackhole) {
+        for (String name : names) {
+            blackhole.consume(FileStorageService.determineContentType(name));
+        }
+    }
+}
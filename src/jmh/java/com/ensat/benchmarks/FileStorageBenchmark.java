@@ -0,0 +1,96 @@
+package com.ensat.benchmarks;
+
+import com.ensat.config.FileUploadProperties;
+import com.ensat.dto.StoredFile;
+import com.ensat.services.FileStorageService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FileStorageService store, load and listAllFiles across file sizes and
+ * directory populations
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FileStorageBenchmark {
+
+    @Param({"1024", "1048576", "16777216"})
+    public int fileSize;
+
+    @Param({"100", "10000"})
+    public int population;
+
+    @Param({"false", "true"})
+    public boolean sharded;
+
+    private Path uploadDir;
+    private FileStorageService service;
+    private byte[] content;
+    private String existingName;
+    private final List<String> stored = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        uploadDir = Files.createTempDirectory("jmh-uploads");
+        FileUploadProperties properties = new FileUploadProperties();
+        properties.setSharded(sharded);
+
+        service = new FileStorageService();
+        ReflectionTestUtils.setField(service, "uploadPath", uploadDir.toString());
+        ReflectionTestUtils.setField(service, "fileUploadProperties", properties);
+        ReflectionTestUtils.setField(service, "eventPublisher", (ApplicationEventPublisher) event -> { });
+        service.init();
+
+        content = new byte[fileSize];
+        new Random(42).nextBytes(content);
+
+        byte[] small = new byte[128];
+        for (int i = 0; i < population; i++) {
+            existingName = service.store(new ByteArrayInputStream(small), "file-" + i + ".txt").getFilename();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteStored() throws IOException {
+        for (String name : stored) {
+            service.delete(name);
+        }
+        stored.clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(uploadDir);
+    }
+
+    @Benchmark
+    public StoredFile store() throws IOException {
+        StoredFile file = service.store(new ByteArrayInputStream(content), "upload.bin");
+        stored.add(file.getFilename());
+        return file;
+    }
+
+    @Benchmark
+    public Path load() {
+        return service.load(existingName);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<String> listAllFiles() throws IOException {
+        return service.listAllFiles();
+    }
+}
@@ -0,0 +1,34 @@
+package com.ensat.benchmarks;
+
+import com.ensat.dto.FileInfoResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialization of the file info response
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JsonSerializationBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private FileInfoResponse response;
+
+    @Setup
+    public void setUp() {
+        response = new FileInfoResponse("3f2a1b6c-0d4e-4f7a-9b8c-1d2e3f4a5b6c.jpg", 123456L,
+                "./uploads/3f/2a/3f2a1b6c-0d4e-4f7a-9b8c-1d2e3f4a5b6c.jpg", "image/jpeg", true);
+        response.setOriginalName("holiday.jpg");
+        response.setSha256("2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824");
+        response.setCreatedAt(System.currentTimeMillis());
+    }
+
+    @Benchmark
+    public byte[] fileInfoResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
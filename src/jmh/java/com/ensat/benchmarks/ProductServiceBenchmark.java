@@ -0,0 +1,86 @@
+package com.ensat.benchmarks;
+
+import com.ensat.SpringBootWebApplication;
+import com.ensat.entities.Product;
+import com.ensat.repositories.ProductRepository;
+import com.ensat.services.ProductService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Product reads through the cache versus straight from an embedded H2 database
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProductServiceBenchmark {
+
+    @Param({"1000"})
+    public int products;
+
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+    private ProductRepository productRepository;
+    private CacheManager cacheManager;
+    private int firstId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = new SpringApplicationBuilder(SpringBootWebApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.profiles.active=h2",
+                        "--file.upload.path=" + Files.createTempDirectory("jmh-uploads"),
+                        "--file.upload.catalog-watch=false",
+                        "--logging.level.root=WARN");
+        productService = context.getBean(ProductService.class);
+        productRepository = context.getBean(ProductRepository.class);
+        cacheManager = context.getBean(CacheManager.class);
+
+        for (int i = 0; i < products; i++) {
+            Product product = new Product();
+            product.setProductId("P" + i);
+            product.setName("Product " + i);
+            product.setPrice(BigDecimal.valueOf(i));
+            Product saved = productService.saveProduct(product);
+            if (i == 0) {
+                firstId = saved.getId();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private int randomId() {
+        return firstId + ThreadLocalRandom.current().nextInt(products);
+    }
+
+    @Benchmark
+    public Product cachedRead() {
+        return productService.getProductById(randomId());
+    }
+
+    @Benchmark
+    public Product cacheMissRead() {
+        int id = randomId();
+        cacheManager.getCache("product").evict(id);
+        return productService.getProductById(id);
+    }
+
+    @Benchmark
+    public Product uncachedRead() {
+        return productRepository.findById(randomId()).orElse(null);
+    }
+}
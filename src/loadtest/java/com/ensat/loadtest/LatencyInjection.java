@@ -0,0 +1,40 @@
+package com.ensat.loadtest;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+
+/**
+ * Adds a blocking wait to repository calls and file storage/transfer calls,
+ * standing in for a remote database and slow disks. Registered explicitly by
+ * the load test, never component-scanned.
+ */
+@Aspect
+public class LatencyInjection {
+
+    @Value("${loadtest.db-latency:0}")
+    private long dbLatencyMillis;
+
+    @Value("${loadtest.disk-latency:0}")
+    private long diskLatencyMillis;
+
+    @Around("execution(* com.ensat.repositories..*(..))")
+    public Object database(ProceedingJoinPoint joinPoint) throws Throwable {
+        pause(dbLatencyMillis);
+        return joinPoint.proceed();
+    }
+
+    @Around("execution(public * com.ensat.services.FileStorageService.store(java.io.InputStream, String))"
+            + " || execution(public * com.ensat.services.FileTransferService.serve(..))")
+    public Object disk(ProceedingJoinPoint joinPoint) throws Throwable {
+        pause(diskLatencyMillis);
+        return joinPoint.proceed();
+    }
+
+    private static void pause(long millis) throws InterruptedException {
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+}
@@ -0,0 +1,385 @@
+package com.ensat.loadtest;
+
+import com.ensat.SpringBootWebApplication;
+import com.ensat.entities.Product;
+import com.ensat.services.FileStorageService;
+import com.ensat.services.ProductService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load test: starts the app on the h2 profile, seeds products and files, then
+ * drives a weighted mix of requests from concurrent clients. Prints throughput
+ * and latency percentiles, writes them as JSON and exits with status 1 when a
+ * budget from the thresholds file is exceeded. With several execution modes
+ * the app is started once per mode and the runs are compared.
+ */
+public class LoadTest {
+
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final Properties settings;
+    private final Map<String, Integer> mix = new LinkedHashMap<>();
+    private final Map<String, Histogram> latencies = new LinkedHashMap<>();
+    private final Map<String, AtomicLong> errors = new LinkedHashMap<>();
+    private final List<String> fileNames = new ArrayList<>();
+
+    private String baseUrl;
+    private int firstProductId;
+    private int productCount;
+    private byte[] uploadBody;
+    private String boundary;
+    private volatile boolean recording;
+    private long durationNanos;
+
+    public LoadTest(Properties settings) {
+        this.settings = settings;
+        for (String key : settings.stringPropertyNames()) {
+            if (key.startsWith("mix.")) {
+                int weight = Integer.parseInt(settings.getProperty(key).trim());
+                if (weight > 0) {
+                    String operation = key.substring("mix.".length());
+                    mix.put(operation, weight);
+                    latencies.put(operation, new ConcurrentHistogram(MAX_LATENCY_MICROS, 3));
+                    errors.put(operation, new AtomicLong());
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Properties settings = new Properties();
+        try (InputStream in = LoadTest.class.getResourceAsStream("/loadtest.properties")) {
+            settings.load(in);
+        }
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) {
+                settings.setProperty(arg.substring(0, eq), arg.substring(eq + 1));
+            }
+        }
+
+        // One run per execution mode, e.g. modes=platform,virtual to compare them
+        Map<String, Object> runs = new LinkedHashMap<>();
+        boolean passed = true;
+        for (String mode : settings.getProperty("modes", "platform").split(",")) {
+            Map<String, Object> result = runMode(settings, mode.trim());
+            runs.put(mode.trim(), result);
+            passed &= (Boolean) result.get("passed");
+        }
+        if (runs.size() > 1) {
+            printComparison(runs);
+        }
+        writeReport(settings, runs, passed);
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static Map<String, Object> runMode(Properties settings, String mode) throws Exception {
+        Path uploadDir = Files.createTempDirectory("loadtest-uploads");
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringBootWebApplication.class, LatencyInjection.class)
+                .run("--spring.profiles.active=h2",
+                        "--server.port=0",
+                        "--execution.mode=" + mode,
+                        "--loadtest.db-latency=" + settings.getProperty("db-latency", "0").trim(),
+                        "--loadtest.disk-latency=" + settings.getProperty("disk-latency", "0").trim(),
+                        "--spring.datasource.hikari.maximum-pool-size=" + settings.getProperty("db-pool-size", "10").trim(),
+                        "--file.upload.path=" + uploadDir,
+                        "--logging.level.root=WARN");
+        try {
+            LoadTest loadTest = new LoadTest(settings);
+            loadTest.seed(context);
+            loadTest.run();
+            System.out.printf("%nExecution mode: %s%n", mode);
+            return loadTest.report();
+        } finally {
+            context.close();
+            FileSystemUtils.deleteRecursively(uploadDir);
+        }
+    }
+
+    private int intSetting(String key) {
+        return Integer.parseInt(settings.getProperty(key).trim());
+    }
+
+    void seed(ConfigurableApplicationContext context) throws IOException {
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+
+        ProductService productService = context.getBean(ProductService.class);
+        productCount = intSetting("products");
+        for (int i = 0; i < productCount; i++) {
+            Product product = new Product();
+            product.setProductId("LT-" + i);
+            product.setName("Load test product " + i);
+            product.setPrice(BigDecimal.valueOf(i % 1000, 2));
+            Product saved = productService.saveProduct(product);
+            if (i == 0) {
+                firstProductId = saved.getId();
+            }
+        }
+
+        FileStorageService fileStorageService = context.getBean(FileStorageService.class);
+        fileStorageService.init();
+        Random random = new Random(42);
+        byte[] content = new byte[intSetting("file-size")];
+        for (int i = 0; i < intSetting("files"); i++) {
+            random.nextBytes(content);
+            fileNames.add(fileStorageService.store(new ByteArrayInputStream(content), "seed-" + i + ".bin").getFilename());
+        }
+
+        byte[] payload = new byte[intSetting("upload-size")];
+        random.nextBytes(payload);
+        boundary = "----loadtest" + Long.toHexString(random.nextLong());
+        String head = "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"upload.bin\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n";
+        String tail = "\r\n--" + boundary + "--\r\n";
+        uploadBody = new byte[head.length() + payload.length + tail.length()];
+        System.arraycopy(head.getBytes(StandardCharsets.US_ASCII), 0, uploadBody, 0, head.length());
+        System.arraycopy(payload, 0, uploadBody, head.length(), payload.length);
+        System.arraycopy(tail.getBytes(StandardCharsets.US_ASCII), 0, uploadBody, head.length() + payload.length, tail.length());
+    }
+
+    void run() throws InterruptedException {
+        int threads = intSetting("threads");
+        long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(intSetting("warmup"));
+        long end = warmupEnd + TimeUnit.SECONDS.toNanos(intSetting("duration"));
+        int totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        CountDownLatch done = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    while (System.nanoTime() < end) {
+                        execute(pick(totalWeight));
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "loadtest-" + t);
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        Thread.sleep(Math.max(0, TimeUnit.NANOSECONDS.toMillis(warmupEnd - System.nanoTime())));
+        recording = true;
+        long start = System.nanoTime();
+        done.await();
+        durationNanos = System.nanoTime() - start;
+    }
+
+    private String pick(int totalWeight) {
+        int roll = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+            roll -= entry.getValue();
+            if (roll < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Empty request mix");
+    }
+
+    private void execute(String operation) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long start = System.nanoTime();
+        boolean ok;
+        try {
+            switch (operation) {
+                case "products.list":
+                    ok = request("GET", "/products/", null);
+                    break;
+                case "products.show":
+                    ok = request("GET", "/products/" + (firstProductId + random.nextInt(productCount)), null);
+                    break;
+                case "files.upload":
+                    ok = request("POST", "/files/api/upload", uploadBody);
+                    break;
+                case "files.download":
+                    ok = request("GET", "/files/download/" + fileNames.get(random.nextInt(fileNames.size())), null);
+                    break;
+                case "files.list":
+                    ok = request("GET", "/files/list", null);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown operation " + operation);
+            }
+        } catch (IOException e) {
+            ok = false;
+        }
+        if (recording) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+            latencies.get(operation).recordValue(Math.min(micros, MAX_LATENCY_MICROS));
+            if (!ok) {
+                errors.get(operation).incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Send a request and drain the response so the connection is reused
+     */
+    private boolean request(String method, String path, byte[] multipartBody) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestMethod(method);
+        if (multipartBody != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
+            connection.setFixedLengthStreamingMode(multipartBody.length);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(multipartBody);
+            }
+        }
+        int status = connection.getResponseCode();
+        InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        if (body != null) {
+            byte[] buffer = new byte[64 * 1024];
+            try (InputStream in = body) {
+                while (in.read(buffer) != -1) {
+                    // discard
+                }
+            }
+        }
+        return status >= 200 && status < 300;
+    }
+
+    /**
+     * Print the results and check them against the thresholds
+     */
+    Map<String, Object> report() throws IOException {
+        double seconds = durationNanos / 1e9;
+        Histogram all = new Histogram(MAX_LATENCY_MICROS, 3);
+        long allErrors = 0;
+        Map<String, Object> operations = new LinkedHashMap<>();
+        for (String operation : latencies.keySet()) {
+            Histogram histogram = latencies.get(operation);
+            all.add(histogram);
+            allErrors += errors.get(operation).get();
+            operations.put(operation, summary(histogram, errors.get(operation).get(), seconds));
+        }
+        Map<String, Object> total = summary(all, allErrors, seconds);
+        operations.put("all", total);
+
+        System.out.printf("%n%-16s %10s %8s %10s %9s %9s %9s %9s%n",
+                "operation", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (Map.Entry<String, Object> entry : operations.entrySet()) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> s = (Map<String, Object>) entry.getValue();
+            System.out.printf("%-16s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f%n", entry.getKey(),
+                    s.get("requests"), s.get("errors"), s.get("throughput"),
+                    s.get("p50"), s.get("p95"), s.get("p99"), s.get("max"));
+        }
+
+        List<String> violations = checkThresholds(operations);
+        for (String violation : violations) {
+            System.out.println("FAILED " + violation);
+        }
+        System.out.println(violations.isEmpty() ? "All thresholds met" : violations.size() + " threshold(s) exceeded");
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("durationSeconds", seconds);
+        result.put("operations", operations);
+        result.put("violations", violations);
+        result.put("passed", violations.isEmpty());
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void printComparison(Map<String, Object> runs) {
+        System.out.printf("%n%-10s %10s %9s %9s %8s%n", "mode", "req/s", "p50 ms", "p99 ms", "errors");
+        for (Map.Entry<String, Object> run : runs.entrySet()) {
+            Map<String, Object> operations = (Map<String, Object>) ((Map<String, Object>) run.getValue()).get("operations");
+            Map<String, Object> all = (Map<String, Object>) operations.get("all");
+            System.out.printf("%-10s %10.1f %9.2f %9.2f %8d%n", run.getKey(),
+                    all.get("throughput"), all.get("p50"), all.get("p99"), all.get("errors"));
+        }
+    }
+
+    private static void writeReport(Properties settings, Map<String, Object> runs, boolean passed) throws IOException {
+        String reportPath = settings.getProperty("report");
+        if (reportPath == null) {
+            return;
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("threads", Integer.parseInt(settings.getProperty("threads").trim()));
+        report.put("dbLatencyMillis", Long.parseLong(settings.getProperty("db-latency", "0").trim()));
+        report.put("diskLatencyMillis", Long.parseLong(settings.getProperty("disk-latency", "0").trim()));
+        report.put("runs", runs);
+        report.put("passed", passed);
+        File reportFile = new File(reportPath);
+        reportFile.getAbsoluteFile().getParentFile().mkdirs();
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(reportFile, report);
+        System.out.println("Report written to " + reportFile);
+    }
+
+    private static Map<String, Object> summary(Histogram histogram, long errorCount, double seconds) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        long requests = histogram.getTotalCount();
+        summary.put("requests", requests);
+        summary.put("errors", errorCount);
+        summary.put("error-rate", requests == 0 ? 0.0 : (double) errorCount / requests);
+        summary.put("throughput", requests / seconds);
+        summary.put("p50", histogram.getValueAtPercentile(50) / 1000.0);
+        summary.put("p95", histogram.getValueAtPercentile(95) / 1000.0);
+        summary.put("p99", histogram.getValueAtPercentile(99) / 1000.0);
+        summary.put("max", histogram.getMaxValue() / 1000.0);
+        return summary;
+    }
+
+    private List<String> checkThresholds(Map<String, Object> operations) throws IOException {
+        Properties thresholds = new Properties();
+        String location = settings.getProperty("thresholds");
+        File file = new File(location);
+        try (InputStream in = file.isFile() ? Files.newInputStream(file.toPath())
+                : LoadTest.class.getResourceAsStream("/" + location)) {
+            if (in == null) {
+                throw new IOException("Thresholds file not found: " + location);
+            }
+            thresholds.load(in);
+        }
+
+        List<String> violations = new ArrayList<>();
+        for (String key : thresholds.stringPropertyNames()) {
+            int dot = key.lastIndexOf('.');
+            String operation = key.substring(0, dot);
+            String metric = key.substring(dot + 1);
+            double limit = Double.parseDouble(thresholds.getProperty(key).trim());
+            @SuppressWarnings("unchecked")
+            Map<String, Object> summary = (Map<String, Object>) operations.get(operation);
+            if (summary == null || !summary.containsKey(metric)) {
+                continue; // operation not in this mix
+            }
+            double actual = ((Number) summary.get(metric)).doubleValue();
+            boolean minimum = "throughput".equals(metric);
+            if (minimum ? actual < limit : actual > limit) {
+                violations.add(String.format("%s = %.3f, budget %s %.3f", key, actual, minimum ? ">=" : "<=", limit));
+            }
+        }
+        return violations;
+    }
+}
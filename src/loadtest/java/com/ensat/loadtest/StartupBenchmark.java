@@ -0,0 +1,180 @@
+package com.ensat.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup benchmark: starts the packaged app several times per variant (e.g.
+ * with and without the fast-start profile and the CDS archive) and measures
+ * the time from launching the JVM until /actuator/health/readiness reports UP,
+ * which includes the cache warm-up. Prints the comparison and writes it as JSON.
+ */
+public class StartupBenchmark {
+
+    private static final long POLL_MILLIS = 10;
+
+    public static void main(String[] args) throws Exception {
+        Properties settings = new Properties();
+        try (InputStream in = StartupBenchmark.class.getResourceAsStream("/startup.properties")) {
+            settings.load(in);
+        }
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) {
+                settings.setProperty(arg.substring(0, eq), arg.substring(eq + 1));
+            }
+        }
+
+        int runs = Integer.parseInt(settings.getProperty("runs").trim());
+        Map<String, Object> results = new LinkedHashMap<>();
+        for (String variant : settings.getProperty("variants").split(",")) {
+            variant = variant.trim();
+            List<String> command = command(settings, variant);
+            if (command == null) {
+                System.out.printf("Skipping %s: its jar or archive has not been built%n", variant);
+                continue;
+            }
+            List<Long> times = new ArrayList<>();
+            for (int i = 0; i < runs; i++) {
+                times.add(timeToReady(settings, variant, command));
+            }
+            results.put(variant, summary(times));
+        }
+
+        System.out.printf("%n%-16s %9s %9s %9s%n", "variant", "min ms", "median ms", "max ms");
+        for (Map.Entry<String, Object> result : results.entrySet()) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> summary = (Map<String, Object>) result.getValue();
+            System.out.printf("%-16s %9d %9d %9d%n", result.getKey(),
+                    summary.get("min"), summary.get("median"), summary.get("max"));
+        }
+        writeReport(settings, runs, results);
+    }
+
+    /**
+     * The java command of a variant, or null when a file it needs is missing
+     */
+    private static List<String> command(Properties settings, String variant) {
+        String line = settings.getProperty("variant." + variant);
+        if (line == null) {
+            throw new IllegalArgumentException("No command line for variant " + variant);
+        }
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        for (String arg : line.trim().split("\\s+")) {
+            for (String placeholder : Arrays.asList("jar", "cds-jar", "cds-archive")) {
+                String token = "{" + placeholder + "}";
+                if (arg.contains(token)) {
+                    String file = settings.getProperty(placeholder, "");
+                    if (!new File(file).isFile()) {
+                        return null;
+                    }
+                    arg = arg.replace(token, file);
+                }
+            }
+            command.add(arg);
+        }
+        return command;
+    }
+
+    private static long timeToReady(Properties settings, String variant, List<String> command) throws Exception {
+        Path uploadDir = Files.createTempDirectory("startup-uploads");
+        Path log = Files.createTempFile("startup-" + variant + "-", ".log");
+        int port = freePort();
+        List<String> args = new ArrayList<>(command);
+        args.add("--server.port=" + port);
+        args.add("--file.upload.path=" + uploadDir);
+
+        long timeoutNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(settings.getProperty("timeout").trim()));
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(args).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+        try {
+            URL readiness = new URL("http://localhost:" + port + "/actuator/health/readiness");
+            while (!isReady(readiness)) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException(variant + " exited with status " + process.exitValue() + ", see " + log);
+                }
+                if (System.nanoTime() - start > timeoutNanos) {
+                    throw new IllegalStateException(variant + " was not ready in time, see " + log);
+                }
+                Thread.sleep(POLL_MILLIS);
+            }
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            System.out.printf("%s: ready in %d ms%n", variant, millis);
+            Files.delete(log);
+            return millis;
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+            FileSystemUtils.deleteRecursively(uploadDir);
+        }
+    }
+
+    private static boolean isReady(URL readiness) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) readiness.openConnection();
+            connection.setConnectTimeout(1000);
+            connection.setReadTimeout(1000);
+            try {
+                return connection.getResponseCode() == 200;
+            } finally {
+                connection.disconnect();
+            }
+        } catch (IOException e) {
+            // Not listening yet
+            return false;
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static Map<String, Object> summary(List<Long> times) {
+        List<Long> sorted = new ArrayList<>(times);
+        Collections.sort(sorted);
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("min", sorted.get(0));
+        summary.put("median", sorted.get(sorted.size() / 2));
+        summary.put("max", sorted.get(sorted.size() - 1));
+        summary.put("runs", times);
+        return summary;
+    }
+
+    private static void writeReport(Properties settings, int runs, Map<String, Object> results) throws IOException {
+        String reportPath = settings.getProperty("report");
+        if (reportPath == null) {
+            return;
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("runsPerVariant", runs);
+        report.put("timeToReadyMillis", results);
+        File reportFile = new File(reportPath);
+        reportFile.getAbsoluteFile().getParentFile().mkdirs();
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(reportFile, report);
+        System.out.println("Report written to " + reportFile);
+    }
+}
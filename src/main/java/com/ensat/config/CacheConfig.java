@@ -0,0 +1,109 @@
+package com.ensat.config;
+
+import com.ensat.repositories.ProductRepository;
+import com.ensat.services.InvalidationTransport;
+import com.ensat.services.UdpInvalidationTransport;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded Caffeine (W-TinyLFU) cache manager for the product caches. The
+ * product cache is versioned so cross-node invalidations cannot be undone by
+ * stale writes; productMissing remembers ids that have no product. renderedPages
+ * holds the HTML of product pages, see RenderedPageService.
+ */
+@Configuration
+public class CacheConfig {
+
+    public static final List<String> CACHE_NAMES = Arrays.asList("product", "productMissing", "products", "productPages", "renderedPages");
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheConfig.class);
+
+    private static final Duration DEFAULT_FLOOR_TTL = Duration.ofHours(1);
+    private static final long DEFAULT_MAX_FLOORS = 100_000;
+
+    @Bean
+    public CacheManager cacheManager(ProductCacheProperties properties, ProductRepository productRepository) {
+        // Caches that can be refreshed in the background need a loader for their keys
+        Map<String, CacheLoader<Object, Object>> loaders = new HashMap<>();
+        loaders.put("product", key -> productRepository.findById((Integer) key).orElse(null));
+
+        ProductCacheProperties.Spec productSpec = properties.resolve("product");
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager() {
+            @Override
+            protected Cache adaptCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+                if (!"product".equals(name)) {
+                    return super.adaptCaffeineCache(name, cache);
+                }
+                // Remember announced versions at least as long as entries can live
+                Duration floorTtl = productSpec.getTtl() != null ? productSpec.getTtl() : DEFAULT_FLOOR_TTL;
+                long maxFloors = productSpec.getMaxEntries() != null ? productSpec.getMaxEntries() : DEFAULT_MAX_FLOORS;
+                return new VersionedProductCache(name, cache, isAllowNullValues(), floorTtl, maxFloors);
+            }
+        };
+        for (String name : CACHE_NAMES) {
+            ProductCacheProperties.Spec spec = properties.resolve(name);
+            Caffeine<Object, Object> builder = newBuilder(spec);
+
+            CacheLoader<Object, Object> loader = loaders.get(name);
+            if (spec.getRefreshAfterWrite() != null && loader != null) {
+                builder.refreshAfterWrite(spec.getRefreshAfterWrite());
+                cacheManager.registerCustomCache(name, builder.build(loader));
+            } else {
+                if (spec.getRefreshAfterWrite() != null) {
+                    logger.warn("Cache '{}' has no loader, ignoring refresh-after-write", name);
+                }
+                cacheManager.registerCustomCache(name, builder.build());
+            }
+        }
+        return cacheManager;
+    }
+
+    /**
+     * Peer-to-peer UDP channel for product.cache.invalidation.transport=udp
+     */
+    @Bean(destroyMethod = "stop")
+    @ConditionalOnProperty(name = "product.cache.invalidation.transport", havingValue = "udp")
+    public InvalidationTransport udpInvalidationTransport(ProductCacheProperties properties, ObjectMapper objectMapper) {
+        ProductCacheProperties.Invalidation invalidation = properties.getInvalidation();
+        List<InetSocketAddress> peers = new ArrayList<>();
+        for (String peer : invalidation.getUdpPeers()) {
+            int colon = peer.lastIndexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("Cache invalidation peer must be host:port: " + peer);
+            }
+            peers.add(new InetSocketAddress(peer.substring(0, colon), Integer.parseInt(peer.substring(colon + 1))));
+        }
+        return new UdpInvalidationTransport(invalidation.getUdpPort(), peers, objectMapper);
+    }
+
+    private Caffeine<Object, Object> newBuilder(ProductCacheProperties.Spec spec) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().recordStats();
+        if (spec.getMaxBytes() != null && spec.getMaxBytes() > 0) {
+            builder.maximumWeight(spec.getMaxBytes()).weigher(new CacheEntryWeigher());
+        } else if (spec.getMaxEntries() != null) {
+            builder.maximumSize(spec.getMaxEntries());
+        }
+        if (spec.getTtl() != null) {
+            builder.expireAfterWrite(spec.getTtl());
+        }
+        return builder;
+    }
+}
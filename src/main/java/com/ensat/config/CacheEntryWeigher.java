@@ -0,0 +1,71 @@
+package com.ensat.config;
+
+import com.ensat.dto.ProductPage;
+import com.ensat.entities.Product;
+import com.github.benmanes.caffeine.cache.Weigher;
+
+import java.util.Map;
+
+/**
+ * Rough retained-size estimate of cached values, used for byte-bounded caches
+ */
+public class CacheEntryWeigher implements Weigher<Object, Object> {
+
+    private static final int OBJECT_OVERHEAD = 16;
+    private static final int REFERENCE_SIZE = 8;
+
+    @Override
+    public int weigh(Object key, Object value) {
+        long bytes = estimate(key) + estimate(value);
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(1, bytes));
+    }
+
+    /**
+     * Estimate the size in bytes of a value and what it references
+     */
+    public static long estimate(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof String) {
+            return 40 + ((String) value).length() * 2L;
+        }
+        if (value instanceof byte[]) {
+            return OBJECT_OVERHEAD + ((byte[]) value).length;
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return OBJECT_OVERHEAD + 8;
+        }
+        if (value instanceof Product) {
+            Product product = (Product) value;
+            return OBJECT_OVERHEAD + 6 * REFERENCE_SIZE
+                    + estimate(product.getId())
+                    + estimate(product.getVersion())
+                    + estimate(product.getProductId())
+                    + estimate(product.getName())
+                    + (product.getPrice() != null ? 48 : 0)
+                    + estimate(product.getImagePath());
+        }
+        if (value instanceof ProductPage) {
+            ProductPage page = (ProductPage) value;
+            return OBJECT_OVERHEAD + 3 * REFERENCE_SIZE
+                    + estimate(page.getProducts())
+                    + estimate(page.getNextCursor());
+        }
+        if (value instanceof Map) {
+            long bytes = 64;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                bytes += 32 + estimate(entry.getKey()) + estimate(entry.getValue());
+            }
+            return bytes;
+        }
+        if (value instanceof Iterable) {
+            long bytes = 32;
+            for (Object element : (Iterable<?>) value) {
+                bytes += REFERENCE_SIZE + estimate(element);
+            }
+            return bytes;
+        }
+        return 64;
+    }
+}
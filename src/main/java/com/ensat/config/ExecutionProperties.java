@@ -0,0 +1,37 @@
+package com.ensat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties selecting the threads that run request handling
+ * and blocking background work
+ */
+@Configuration
+@ConfigurationProperties(prefix = "execution")
+public class ExecutionProperties {
+
+    public enum Mode {
+        /** Tomcat's fixed worker pool and platform-thread executors */
+        PLATFORM,
+        /** A virtual thread per request and virtual-thread executors (Java 21+) */
+        VIRTUAL
+    }
+
+    private Mode mode = Mode.PLATFORM;
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Whether virtual threads were requested and this JVM supports them
+     */
+    public boolean isVirtual() {
+        return mode == Mode.VIRTUAL && VirtualThreads.isAvailable();
+    }
+}
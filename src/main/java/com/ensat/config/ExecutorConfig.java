@@ -0,0 +1,123 @@
+package com.ensat.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Bounded executors for background and blocking work. With execution.mode=virtual,
+ * Tomcat runs each request on a new virtual thread and the blocking I/O executors
+ * use virtual threads too; their pool sizes then only bound concurrency.
+ */
+@Configuration
+public class ExecutorConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecutorConfig.class);
+
+    @Autowired
+    private ExecutionProperties executionProperties;
+
+    @PostConstruct
+    public void logExecutionMode() {
+        if (executionProperties.getMode() == ExecutionProperties.Mode.VIRTUAL && !VirtualThreads.isAvailable()) {
+            logger.warn("execution.mode=virtual needs Java 21 or later, running on platform threads");
+        } else {
+            logger.info("Running requests and blocking I/O on {} threads",
+                    executionProperties.isVirtual() ? "virtual" : "platform");
+        }
+    }
+
+    /**
+     * Replace Tomcat's worker pool by a virtual thread per request. Database
+     * waits unmount only because the MySQL driver (9.x) uses locks, not monitors.
+     */
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> {
+            if (executionProperties.isVirtual()) {
+                protocolHandler.setExecutor(VirtualThreads.newThreadPerTaskExecutor("http-vt-"));
+            }
+        };
+    }
+
+    private void useExecutionMode(ThreadPoolTaskExecutor executor, String threadNamePrefix) {
+        executor.setThreadNamePrefix(threadNamePrefix);
+        if (executionProperties.isVirtual()) {
+            executor.setThreadFactory(VirtualThreads.threadFactory(threadNamePrefix));
+        }
+    }
+
+    /**
+     * Executor for blocking file I/O. When its queue is full the submitting
+     * thread runs the task itself, which throttles producers instead of failing.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolTaskExecutor fileIoExecutor(FileUploadProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getIoThreads());
+        executor.setMaxPoolSize(properties.getIoThreads());
+        executor.setQueueCapacity(properties.getIoQueueCapacity());
+        useExecutionMode(executor, "file-io-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Executor for background image renditions. Jobs that do not fit in the
+     * queue are dropped; the rendition is then generated on first request.
+     * The work is CPU-bound, so it stays on platform threads in every mode.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolTaskExecutor renditionExecutor(RenditionProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getThreads());
+        executor.setMaxPoolSize(properties.getThreads());
+        executor.setQueueCapacity(properties.getQueueCapacity());
+        executor.setThreadNamePrefix("rendition-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Executor for gzip precompression. Unlike fileIoExecutor it never runs a
+     * job on the submitting thread: a download that finds the queue full is
+     * served uncompressed. CPU-bound, so it stays on platform threads.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolTaskExecutor precompressExecutor(FileDownloadProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getPrecompressThreads());
+        executor.setMaxPoolSize(properties.getPrecompressThreads());
+        executor.setQueueCapacity(properties.getPrecompressQueueCapacity());
+        executor.setThreadNamePrefix("precompress-");
+        // Rejections are dropped by the caller, which has to release its pending mark
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Executor for streaming uploads, so a slowly arriving body does not hold a
+     * Tomcat worker. Rejected uploads are answered with 503.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolTaskExecutor asyncUploadExecutor(FileUploadProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getAsyncThreads());
+        executor.setMaxPoolSize(properties.getAsyncThreads());
+        executor.setQueueCapacity(properties.getAsyncQueueCapacity());
+        useExecutionMode(executor, "upload-");
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,132 @@
+package com.ensat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for file download and view responses
+ */
+@Configuration
+@ConfigurationProperties(prefix = "file.download")
+public class FileDownloadProperties {
+
+    private String cacheControl = "public, max-age=86400";
+    private boolean sendfile = true;
+    private long sendfileThreshold = 48 * 1024; // 48KB, same as Tomcat's DefaultServlet
+    private int maxRanges = 16;
+    private boolean precompress = true;
+    private boolean precompressOnStore = true;
+    private long precompressMinSize = 1024; // smaller bodies gain little from gzip
+    private int precompressThreads = 1;
+    private int precompressQueueCapacity = 1000; // jobs beyond this are dropped
+    private boolean async = true; // non-blocking writes when sendfile is not used
+    private int asyncBufferSize = 64 * 1024;
+    private Duration writeTimeout = Duration.ofSeconds(30); // max time a client may accept no bytes
+    private Duration asyncTimeout = Duration.ofHours(1); // max time for a whole transfer
+
+    public String getCacheControl() {
+        return cacheControl;
+    }
+
+    public void setCacheControl(String cacheControl) {
+        this.cacheControl = cacheControl;
+    }
+
+    public boolean isSendfile() {
+        return sendfile;
+    }
+
+    public void setSendfile(boolean sendfile) {
+        this.sendfile = sendfile;
+    }
+
+    public long getSendfileThreshold() {
+        return sendfileThreshold;
+    }
+
+    public void setSendfileThreshold(long sendfileThreshold) {
+        this.sendfileThreshold = sendfileThreshold;
+    }
+
+    public int getMaxRanges() {
+        return maxRanges;
+    }
+
+    public void setMaxRanges(int maxRanges) {
+        this.maxRanges = maxRanges;
+    }
+
+    public boolean isPrecompress() {
+        return precompress;
+    }
+
+    public void setPrecompress(boolean precompress) {
+        this.precompress = precompress;
+    }
+
+    public boolean isPrecompressOnStore() {
+        return precompressOnStore;
+    }
+
+    public void setPrecompressOnStore(boolean precompressOnStore) {
+        this.precompressOnStore = precompressOnStore;
+    }
+
+    public long getPrecompressMinSize() {
+        return precompressMinSize;
+    }
+
+    public void setPrecompressMinSize(long precompressMinSize) {
+        this.precompressMinSize = precompressMinSize;
+    }
+
+    public int getPrecompressThreads() {
+        return precompressThreads;
+    }
+
+    public void setPrecompressThreads(int precompressThreads) {
+        this.precompressThreads = precompressThreads;
+    }
+
+    public int getPrecompressQueueCapacity() {
+        return precompressQueueCapacity;
+    }
+
+    public void setPrecompressQueueCapacity(int precompressQueueCapacity) {
+        this.precompressQueueCapacity = precompressQueueCapacity;
+    }
+
+    public boolean isAsync() {
+        return async;
+    }
+
+    public void setAsync(boolean async) {
+        this.async = async;
+    }
+
+    public int getAsyncBufferSize() {
+        return asyncBufferSize;
+    }
+
+    public void setAsyncBufferSize(int asyncBufferSize) {
+        this.asyncBufferSize = asyncBufferSize;
+    }
+
+    public Duration getWriteTimeout() {
+        return writeTimeout;
+    }
+
+    public void setWriteTimeout(Duration writeTimeout) {
+        this.writeTimeout = writeTimeout;
+    }
+
+    public Duration getAsyncTimeout() {
+        return asyncTimeout;
+    }
+
+    public void setAsyncTimeout(Duration asyncTimeout) {
+        this.asyncTimeout = asyncTimeout;
+    }
+}
@@ -0,0 +1,250 @@
+package com.ensat.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Records a timer and a byte-size summary per /files endpoint. Upload bytes are
+ * counted as the body is read (or taken from Content-Length for multipart
+ * bodies Tomcat parses itself); download bytes are the Content-Length set on a
+ * 200/206 response, which also covers sendfile and asynchronous transfers.
+ * Both carry an outcome tag: success, error when the handler threw or an
+ * asynchronous request failed, or timeout. Failed uploads record the bytes
+ * actually read and failed downloads none.
+ */
+public class FileMetricsFilter extends OncePerRequestFilter {
+
+    static final String REQUESTS_METRIC = "files.requests";
+    static final String BYTES_METRIC = "files.bytes";
+
+    static final String OUTCOME_SUCCESS = "success";
+    static final String OUTCOME_TIMEOUT = "timeout";
+    static final String OUTCOME_ERROR = "error";
+
+    private final MeterRegistry registry;
+
+    public FileMetricsFilter(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        CountingRequest countingRequest = new CountingRequest(request);
+        ContentLengthResponse contentLengthResponse = new ContentLengthResponse(response);
+        long start = System.nanoTime();
+        String syncOutcome = OUTCOME_ERROR;
+        try {
+            chain.doFilter(countingRequest, contentLengthResponse);
+            syncOutcome = OUTCOME_SUCCESS;
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    // onComplete follows a timeout or error, once it has been handled
+                    private final AtomicReference<String> outcome = new AtomicReference<>(OUTCOME_SUCCESS);
+
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        record(countingRequest, contentLengthResponse, start, outcome.get());
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                        outcome.compareAndSet(OUTCOME_SUCCESS, OUTCOME_TIMEOUT);
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                        outcome.compareAndSet(OUTCOME_SUCCESS, OUTCOME_ERROR);
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                record(countingRequest, contentLengthResponse, start, syncOutcome);
+            }
+        }
+    }
+
+    private void record(CountingRequest request, ContentLengthResponse response, long start, String outcome) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        String direction = directionOf(request.getMethod(), uri);
+        String status = String.valueOf(response.getStatus());
+
+        Timer.builder(REQUESTS_METRIC)
+                .description("Time to handle a /files request, including the transfer")
+                .tag("uri", uri)
+                .tag("method", request.getMethod())
+                .tag("direction", direction)
+                .tag("status", status)
+                .tag("outcome", outcome)
+                .register(registry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        long bytes = bytesOf(request, response, direction, outcome);
+        if (bytes >= 0) {
+            DistributionSummary.builder(BYTES_METRIC)
+                    .description("Bytes transferred per /files request")
+                    .baseUnit("bytes")
+                    .tag("uri", uri)
+                    .tag("direction", direction)
+                    .tag("outcome", outcome)
+                    .register(registry)
+                    .record(bytes);
+        }
+    }
+
+    private static String directionOf(String method, String uri) {
+        if ("POST".equals(method) || "PUT".equals(method)) {
+            return "upload";
+        }
+        if ("GET".equals(method) && (uri.startsWith("/files/download/") || uri.startsWith("/files/view/"))) {
+            return "download";
+        }
+        return "other";
+    }
+
+    private static long bytesOf(CountingRequest request, ContentLengthResponse response, String direction,
+                                String outcome) {
+        // The Content-Length of an interrupted transfer is not what was sent
+        boolean success = OUTCOME_SUCCESS.equals(outcome);
+        if ("upload".equals(direction)) {
+            return success ? Math.max(request.bytesRead, request.getContentLengthLong()) : request.bytesRead;
+        }
+        int status = response.getStatus();
+        if ("download".equals(direction) && success && (status == HttpServletResponse.SC_OK
+                || status == HttpServletResponse.SC_PARTIAL_CONTENT)) {
+            return response.contentLength;
+        }
+        return -1;
+    }
+
+    /**
+     * Remembers the Content-Length set by the handler; the container does not
+     * report it through getHeader() until the response is committed
+     */
+    private static class ContentLengthResponse extends HttpServletResponseWrapper {
+
+        private volatile long contentLength = -1;
+
+        ContentLengthResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public void setContentLength(int len) {
+            contentLength = len;
+            super.setContentLength(len);
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+            contentLength = len;
+            super.setContentLengthLong(len);
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            captureContentLength(name, value);
+            super.setHeader(name, value);
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            captureContentLength(name, value);
+            super.addHeader(name, value);
+        }
+
+        private void captureContentLength(String name, String value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name) && value != null) {
+                try {
+                    contentLength = Long.parseLong(value.trim());
+                } catch (NumberFormatException e) {
+                    contentLength = -1;
+                }
+            }
+        }
+
+        @Override
+        public void reset() {
+            contentLength = -1;
+            super.reset();
+        }
+    }
+
+    /**
+     * Counts body bytes read through getInputStream()
+     */
+    private static class CountingRequest extends HttpServletRequestWrapper {
+
+        private volatile long bytesRead;
+        private ServletInputStream inputStream;
+
+        CountingRequest(HttpServletRequest request) {
+            super(request);
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (inputStream == null) {
+                ServletInputStream delegate = super.getInputStream();
+                inputStream = new ServletInputStream() {
+                    @Override
+                    public int read() throws IOException {
+                        int b = delegate.read();
+                        if (b >= 0) {
+                            bytesRead++;
+                        }
+                        return b;
+                    }
+
+                    @Override
+                    public int read(byte[] buffer, int offset, int length) throws IOException {
+                        int n = delegate.read(buffer, offset, length);
+                        if (n > 0) {
+                            bytesRead += n;
+                        }
+                        return n;
+                    }
+
+                    @Override
+                    public boolean isFinished() {
+                        return delegate.isFinished();
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return delegate.isReady();
+                    }
+
+                    @Override
+                    public void setReadListener(ReadListener readListener) {
+                        delegate.setReadListener(readListener);
+                    }
+                };
+            }
+            return inputStream;
+        }
+    }
+}
@@ -3,6 +3,8 @@ package com.ensat.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 /**
  * Configuration properties for file upload
  */
@@ -13,6 +15,22 @@ public class FileUploadProperties {
     private String path = "./uploads";
     private long maxFileSize = 10 * 1024 * 1024; // 10MB
     private long maxRequestSize = 10 * 1024 * 1024; // 10MB
+    private long maxStreamSize = 1024L * 1024 * 1024; // 1GB, raw streaming uploads
+    private boolean contentAddressed = false; // store blobs once under their SHA-256
+    private long chunkSize = 8 * 1024 * 1024; // 8MB, default chunk of resumable uploads
+    private long maxChunkSize = 64 * 1024 * 1024; // 64MB
+    private long maxChunkedFileSize = 10L * 1024 * 1024 * 1024; // 10GB
+    private Duration chunkedSessionTtl = Duration.ofHours(24); // abandoned sessions are removed after this
+    private boolean parallel = true; // write multi-file uploads concurrently on the file I/O executor
+    private int ioThreads = 4;
+    private int ioQueueCapacity = 256;
+    private long maxInFlightBytes = 64 * 1024 * 1024; // 64MB per multi-file batch
+    private boolean catalogWatch = true; // track changes made outside the app with a WatchService
+    private boolean sharded = false; // two-level hex prefix directories instead of one flat directory
+    private boolean migrateOnStartup = false; // move flat files into shards in the background after startup
+    private int asyncThreads = 16; // streaming uploads read off the Tomcat worker threads
+    private int asyncQueueCapacity = 64;
+    private Duration asyncTimeout = Duration.ofMinutes(10);
     
     public String getPath() {
         return path;
@@ -37,4 +55,132 @@ public class FileUploadProperties {
     public void setMaxRequestSize(long maxRequestSize) {
         this.maxRequestSize = maxRequestSize;
     }
+
+    public long getMaxStreamSize() {
+        return maxStreamSize;
+    }
+    
+    public void setMaxStreamSize(long maxStreamSize) {
+        this.maxStreamSize = maxStreamSize;
+    }
+
+    public boolean isContentAddressed() {
+        return contentAddressed;
+    }
+    
+    public void setContentAddressed(boolean contentAddressed) {
+        this.contentAddressed = contentAddressed;
+    }
+
+    public long getChunkSize() {
+        return chunkSize;
+    }
+    
+    public void setChunkSize(long chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+    
+    public long getMaxChunkSize() {
+        return maxChunkSize;
+    }
+    
+    public void setMaxChunkSize(long maxChunkSize) {
+        this.maxChunkSize = maxChunkSize;
+    }
+    
+    public long getMaxChunkedFileSize() {
+        return maxChunkedFileSize;
+    }
+    
+    public void setMaxChunkedFileSize(long maxChunkedFileSize) {
+        this.maxChunkedFileSize = maxChunkedFileSize;
+    }
+    
+    public Duration getChunkedSessionTtl() {
+        return chunkedSessionTtl;
+    }
+    
+    public void setChunkedSessionTtl(Duration chunkedSessionTtl) {
+        this.chunkedSessionTtl = chunkedSessionTtl;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+    
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+    
+    public int getIoThreads() {
+        return ioThreads;
+    }
+    
+    public void setIoThreads(int ioThreads) {
+        this.ioThreads = ioThreads;
+    }
+    
+    public int getIoQueueCapacity() {
+        return ioQueueCapacity;
+    }
+    
+    public void setIoQueueCapacity(int ioQueueCapacity) {
+        this.ioQueueCapacity = ioQueueCapacity;
+    }
+    
+    public long getMaxInFlightBytes() {
+        return maxInFlightBytes;
+    }
+    
+    public void setMaxInFlightBytes(long maxInFlightBytes) {
+        this.maxInFlightBytes = maxInFlightBytes;
+    }
+
+    public boolean isCatalogWatch() {
+        return catalogWatch;
+    }
+    
+    public void setCatalogWatch(boolean catalogWatch) {
+        this.catalogWatch = catalogWatch;
+    }
+
+    public boolean isSharded() {
+        return sharded;
+    }
+    
+    public void setSharded(boolean sharded) {
+        this.sharded = sharded;
+    }
+
+    public boolean isMigrateOnStartup() {
+        return migrateOnStartup;
+    }
+    
+    public void setMigrateOnStartup(boolean migrateOnStartup) {
+        this.migrateOnStartup = migrateOnStartup;
+    }
+
+    public int getAsyncThreads() {
+        return asyncThreads;
+    }
+
+    public void setAsyncThreads(int asyncThreads) {
+        this.asyncThreads = asyncThreads;
+    }
+
+    public int getAsyncQueueCapacity() {
+        return asyncQueueCapacity;
+    }
+
+    public void setAsyncQueueCapacity(int asyncQueueCapacity) {
+        this.asyncQueueCapacity = asyncQueueCapacity;
+    }
+
+    public Duration getAsyncTimeout() {
+        return asyncTimeout;
+    }
+
+    public void setAsyncTimeout(Duration asyncTimeout) {
+        this.asyncTimeout = asyncTimeout;
+    }
 }
@@ -0,0 +1,43 @@
+package com.ensat.config;
+
+import com.ensat.services.FileCatalogService;
+import com.ensat.services.FileTransferService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Application meters exposed through Actuator. Cache and repository meters
+ * come from Spring Boot's own binders, see management.* in application.properties.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public FilterRegistrationBean<FileMetricsFilter> fileMetricsFilter(MeterRegistry registry) {
+        FilterRegistrationBean<FileMetricsFilter> registration =
+                new FilterRegistrationBean<>(new FileMetricsFilter(registry));
+        registration.addUrlPatterns("/files/*");
+        return registration;
+    }
+
+    /**
+     * Number of files in the upload directory, as tracked by the catalog
+     */
+    @Bean
+    public MeterBinder storedFilesGauge(FileCatalogService fileCatalogService) {
+        return registry -> Gauge.builder("files.stored", fileCatalogService, FileCatalogService::count)
+                .description("Files in the upload directory")
+                .register(registry);
+    }
+
+    @Bean
+    public MeterBinder activeTransfersGauge(FileTransferService fileTransferService) {
+        return registry -> Gauge.builder("files.transfers.active", fileTransferService, FileTransferService::activeTransferCount)
+                .description("Downloads being written asynchronously")
+                .register(registry);
+    }
+}
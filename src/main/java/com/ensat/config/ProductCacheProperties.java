@@ -0,0 +1,168 @@
+package com.ensat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Configuration properties for the bounded product caches
+ */
+@Configuration
+@ConfigurationProperties(prefix = "product.cache")
+public class ProductCacheProperties {
+
+    private Spec defaults = new Spec();
+    private Map<String, Spec> caches = new LinkedHashMap<>();
+    private Invalidation invalidation = new Invalidation();
+
+    public Spec getDefaults() {
+        return defaults;
+    }
+
+    public void setDefaults(Spec defaults) {
+        this.defaults = defaults;
+    }
+
+    public Map<String, Spec> getCaches() {
+        return caches;
+    }
+
+    public void setCaches(Map<String, Spec> caches) {
+        this.caches = caches;
+    }
+
+    public Invalidation getInvalidation() {
+        return invalidation;
+    }
+
+    public void setInvalidation(Invalidation invalidation) {
+        this.invalidation = invalidation;
+    }
+
+    /**
+     * Settings of the named cache, falling back to the defaults for unset values
+     */
+    public Spec resolve(String name) {
+        Spec spec = null;
+        for (Map.Entry<String, Spec> entry : caches.entrySet()) {
+            // Map keys may arrive in kebab or lower case from relaxed binding
+            if (normalize(entry.getKey()).equals(normalize(name))) {
+                spec = entry.getValue();
+            }
+        }
+        if (spec == null) {
+            return defaults;
+        }
+        Spec merged = new Spec();
+        merged.setMaxEntries(spec.getMaxEntries() != null ? spec.getMaxEntries() : defaults.getMaxEntries());
+        merged.setMaxBytes(spec.getMaxBytes() != null ? spec.getMaxBytes() : defaults.getMaxBytes());
+        merged.setTtl(spec.getTtl() != null ? spec.getTtl() : defaults.getTtl());
+        merged.setRefreshAfterWrite(spec.getRefreshAfterWrite() != null
+                ? spec.getRefreshAfterWrite() : defaults.getRefreshAfterWrite());
+        return merged;
+    }
+
+    private static String normalize(String name) {
+        return name.replace("-", "").toLowerCase();
+    }
+
+    /**
+     * Size and expiry settings of a single cache. When maxBytes is set it takes
+     * precedence over maxEntries and entries are weighed by their estimated size.
+     */
+    public static class Spec {
+        private Long maxEntries;
+        private Long maxBytes;
+        private Duration ttl;
+        private Duration refreshAfterWrite;
+
+        public Long getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(Long maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public Long getMaxBytes() {
+            return maxBytes;
+        }
+
+        public void setMaxBytes(Long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public Duration getRefreshAfterWrite() {
+            return refreshAfterWrite;
+        }
+
+        public void setRefreshAfterWrite(Duration refreshAfterWrite) {
+            this.refreshAfterWrite = refreshAfterWrite;
+        }
+    }
+
+    /**
+     * Cross-node invalidation of the product caches. With transport none each
+     * node only evicts its own caches.
+     */
+    public static class Invalidation {
+        private String transport = "none"; // none or udp
+        private Duration batchInterval = Duration.ofMillis(50);
+        private int maxBatchSize = 500; // entries per message
+        private int udpPort = 45678;
+        private List<String> udpPeers = new ArrayList<>(); // host:port of the other nodes
+
+        public String getTransport() {
+            return transport;
+        }
+
+        public void setTransport(String transport) {
+            this.transport = transport;
+        }
+
+        public Duration getBatchInterval() {
+            return batchInterval;
+        }
+
+        public void setBatchInterval(Duration batchInterval) {
+            this.batchInterval = batchInterval;
+        }
+
+        public int getMaxBatchSize() {
+            return maxBatchSize;
+        }
+
+        public void setMaxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        public int getUdpPort() {
+            return udpPort;
+        }
+
+        public void setUdpPort(int udpPort) {
+            this.udpPort = udpPort;
+        }
+
+        public List<String> getUdpPeers() {
+            return udpPeers;
+        }
+
+        public void setUdpPeers(List<String> udpPeers) {
+            this.udpPeers = udpPeers;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.ensat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for product export
+ */
+@Configuration
+@ConfigurationProperties(prefix = "product.export")
+public class ProductExportProperties {
+
+    private int fetchSize = 1000; // rows per round trip; Integer.MIN_VALUE streams row by row on MySQL
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+}
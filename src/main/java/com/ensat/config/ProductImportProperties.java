@@ -0,0 +1,31 @@
+package com.ensat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for bulk product import
+ */
+@Configuration
+@ConfigurationProperties(prefix = "product.import")
+public class ProductImportProperties {
+
+    private int batchSize = 500; // rows per JDBC batch and per transaction
+    private int maxErrors = 1000; // row errors reported in detail
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getMaxErrors() {
+        return maxErrors;
+    }
+
+    public void setMaxErrors(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+}
@@ -0,0 +1,51 @@
+package com.ensat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for partial (in-database) product updates
+ */
+@Configuration
+@ConfigurationProperties(prefix = "product.update")
+public class ProductUpdateProperties {
+
+    private int maxBatchSize = 1000; // updates per request, applied in one transaction
+    private int maxAttempts = 5; // tries of a batch that hit a lock timeout or deadlock
+    private Duration initialBackoff = Duration.ofMillis(10); // doubled after each failed try
+    private Duration maxBackoff = Duration.ofMillis(500);
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public Duration getInitialBackoff() {
+        return initialBackoff;
+    }
+
+    public void setInitialBackoff(Duration initialBackoff) {
+        this.initialBackoff = initialBackoff;
+    }
+
+    public Duration getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    public void setMaxBackoff(Duration maxBackoff) {
+        this.maxBackoff = maxBackoff;
+    }
+}
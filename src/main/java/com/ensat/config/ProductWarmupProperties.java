@@ -0,0 +1,79 @@
+package com.ensat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for loading the product caches before the
+ * application reports itself ready
+ */
+@Configuration
+@ConfigurationProperties(prefix = "product.warmup")
+public class ProductWarmupProperties {
+
+    private boolean enabled = false; // pre-warm on startup, see the fast-start profile
+    private int count = 1000; // hottest products to load
+    private int pages = 1; // first product list pages to load
+    private int threads = 4; // parallel loads, each of batchSize ids
+    private int batchSize = 100;
+    private Duration timeout = Duration.ofSeconds(30); // readiness is not held back longer than this
+    private String snapshotPath = "./data/hot-products"; // hottest ids, written by every node; not under file.upload.path
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    public int getPages() {
+        return pages;
+    }
+
+    public void setPages(int pages) {
+        this.pages = pages;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    public String getSnapshotPath() {
+        return snapshotPath;
+    }
+
+    public void setSnapshotPath(String snapshotPath) {
+        this.snapshotPath = snapshotPath;
+    }
+}
@@ -0,0 +1,53 @@
+package com.ensat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Configuration properties for image renditions (thumbnails)
+ */
+@Configuration
+@ConfigurationProperties(prefix = "file.rendition")
+public class RenditionProperties {
+
+    private boolean enabled = true;
+    private List<Integer> widths = new ArrayList<>(Arrays.asList(160, 640)); // thumbnail, medium
+    private int threads = 2;
+    private int queueCapacity = 1000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public List<Integer> getWidths() {
+        return widths;
+    }
+
+    public void setWidths(List<Integer> widths) {
+        this.widths = widths;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+}
@@ -0,0 +1,55 @@
+package com.ensat.config;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.annotation.Schedules;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Startup support for the fast-start profile, see application-fast-start.properties
+ */
+@Configuration
+public class StartupConfig {
+
+    /**
+     * Beans with scheduled methods stay eager under spring.main.lazy-initialization:
+     * schedules are only registered for beans that get created, and these beans
+     * are not necessarily injected anywhere.
+     */
+    @Bean
+    public static LazyInitializationExcludeFilter scheduledBeansExcludeFilter() {
+        return (beanName, beanDefinition, beanType) -> beanType != null && hasScheduledMethods(beanType);
+    }
+
+    static boolean hasScheduledMethods(Class<?> beanType) {
+        return !MethodIntrospector.selectMethods(ClassUtils.getUserClass(beanType),
+                (MethodIntrospector.MetadataLookup<Boolean>) method ->
+                        AnnotatedElementUtils.hasAnnotation(method, Scheduled.class)
+                                || AnnotatedElementUtils.hasAnnotation(method, Schedules.class) ? Boolean.TRUE : null)
+                .isEmpty();
+    }
+
+    /**
+     * Exit once the application accepts traffic, for the training run that
+     * records the class-data-sharing archive (mvn -Pcds package)
+     */
+    @Bean
+    @ConditionalOnProperty(name = "startup.exit-on-ready", havingValue = "true")
+    public ApplicationListener<AvailabilityChangeEvent<ReadinessState>> exitOnReady(ApplicationContext context) {
+        return event -> {
+            if (event.getState() == ReadinessState.ACCEPTING_TRAFFIC) {
+                System.exit(SpringApplication.exit(context));
+            }
+        };
+    }
+}
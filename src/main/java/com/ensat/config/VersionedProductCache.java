@@ -0,0 +1,75 @@
+package com.ensat.config;
+
+import com.ensat.entities.Product;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.time.Duration;
+
+/**
+ * Product cache that remembers the newest version announced for each key and
+ * refuses to store anything older, so a read that raced with a write, or an
+ * invalidation delivered out of order, cannot bring back a stale product.
+ * Entries refreshed by the cache loader bypass the check; they are read after
+ * the write has committed. Lookups never load, misses are loaded (once per key)
+ * by ProductServiceImpl.
+ */
+public class VersionedProductCache extends CaffeineCache {
+
+    private static final int DELETED = Integer.MAX_VALUE;
+
+    private final Cache<Object, Integer> floors;
+
+    public VersionedProductCache(String name, Cache<Object, Object> cache, boolean allowNullValues,
+                                 Duration floorTtl, long maxFloors) {
+        super(name, cache, allowNullValues);
+        this.floors = Caffeine.newBuilder()
+                .expireAfterWrite(floorTtl)
+                .maximumSize(maxFloors)
+                .build();
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        return getNativeCache().getIfPresent(key);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (!isStale(key, value)) {
+            super.put(key, value);
+        }
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        if (isStale(key, value)) {
+            return null;
+        }
+        return super.putIfAbsent(key, value);
+    }
+
+    /**
+     * Record that the product changed to this version (or was deleted) and drop
+     * the cached copy unless it is already at least that new
+     */
+    public void invalidate(Object key, Integer version, boolean deleted) {
+        int floor = deleted || version == null ? DELETED : version;
+        floors.asMap().merge(key, floor, Math::max);
+        // Not get(): on a loading cache that would load the entry
+        Object cached = getNativeCache().getIfPresent(key);
+        if (cached != null && isStale(key, cached)) {
+            evict(key);
+        }
+    }
+
+    private boolean isStale(Object key, Object value) {
+        Integer floor = floors.getIfPresent(key);
+        if (floor == null || !(value instanceof Product)) {
+            return false;
+        }
+        Integer version = ((Product) value).getVersion();
+        return version == null || version < floor;
+    }
+}
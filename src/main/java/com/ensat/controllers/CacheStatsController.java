@@ -0,0 +1,61 @@
+package com.ensat.controllers;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Controller exposing runtime statistics of the application caches
+ */
+@RestController
+@RequestMapping("/cache")
+public class CacheStatsController {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    /**
+     * Hit, miss and eviction counters of every cache
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> stats() {
+        Map<String, Object> response = new LinkedHashMap<>();
+
+        for (String name : cacheManager.getCacheNames()) {
+            org.springframework.cache.Cache cache = cacheManager.getCache(name);
+            if (!(cache instanceof CaffeineCache)) {
+                continue;
+            }
+            Cache<Object, Object> nativeCache = ((CaffeineCache) cache).getNativeCache();
+            CacheStats stats = nativeCache.stats();
+
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("size", nativeCache.estimatedSize());
+            entry.put("hits", stats.hitCount());
+            entry.put("misses", stats.missCount());
+            entry.put("hitRate", stats.hitRate());
+            entry.put("evictions", stats.evictionCount());
+            entry.put("evictionWeight", stats.evictionWeight());
+            Optional<Policy.Eviction<Object, Object>> eviction = nativeCache.policy().eviction();
+            eviction.ifPresent(policy -> {
+                entry.put("maximum", policy.getMaximum());
+                entry.put("weighted", policy.isWeighted());
+                policy.weightedSize().ifPresent(size -> entry.put("weightedSize", size));
+            });
+            response.put(name, entry);
+        }
+
+        return ResponseEntity.ok(response);
+    }
+}
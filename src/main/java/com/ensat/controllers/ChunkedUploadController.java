@@ -0,0 +1,198 @@
+package com.ensat.controllers;
+
+import com.ensat.config.FileUploadProperties;
+import com.ensat.dto.ChunkedUploadStatus;
+import com.ensat.dto.StoredFile;
+import com.ensat.services.ChunkedUploadService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Controller for resumable chunked uploads: initiate, PUT chunk N (in any
+ * order, optionally in parallel), query received chunks, complete.
+ */
+@RestController
+@RequestMapping("/files/api/chunked")
+public class ChunkedUploadController {
+
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
+    @Autowired
+    private FileUploadProperties fileUploadProperties;
+
+    @Autowired
+    @Qualifier("asyncUploadExecutor")
+    private ThreadPoolTaskExecutor asyncUploadExecutor;
+
+    /**
+     * Initiate an upload session
+     */
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> initiate(@RequestParam("filename") String filename,
+                                                        @RequestParam("size") long size,
+                                                        @RequestParam(value = "chunkSize", required = false) Long chunkSize) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            ChunkedUploadStatus status = chunkedUploadService.initiate(filename, size, chunkSize);
+            response.put("success", true);
+            response.put("status", status);
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (IOException e) {
+            response.put("success", false);
+            response.put("message", "Failed to initiate upload: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * Upload chunk N as the raw request body, optionally with its SHA-256. The
+     * body is read on the upload executor, not on a request thread.
+     */
+    @PutMapping("/{uploadId}/chunks/{index}")
+    public WebAsyncTask<ResponseEntity<Map<String, Object>>> uploadChunk(@PathVariable String uploadId,
+                                                                         @PathVariable int index,
+                                                                         @RequestHeader(value = "X-Chunk-Sha256", required = false) String sha256,
+                                                                         HttpServletRequest request) {
+        return new WebAsyncTask<>(fileUploadProperties.getAsyncTimeout().toMillis(), asyncUploadExecutor,
+                () -> writeChunk(uploadId, index, sha256, request));
+    }
+
+    private ResponseEntity<Map<String, Object>> writeChunk(String uploadId, int index, String sha256,
+                                                           HttpServletRequest request) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            String digest = chunkedUploadService.writeChunk(uploadId, index, request.getInputStream(), sha256);
+            if (digest == null) {
+                response.put("success", false);
+                response.put("message", "Upload session not found");
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            }
+            response.put("success", true);
+            response.put("index", index);
+            response.put("sha256", digest);
+            return ResponseEntity.ok(response);
+
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (IOException e) {
+            response.put("success", false);
+            response.put("message", "Failed to write chunk: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * Received chunk ranges of a session
+     */
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<Map<String, Object>> status(@PathVariable String uploadId) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            ChunkedUploadStatus status = chunkedUploadService.status(uploadId);
+            if (status == null) {
+                response.put("success", false);
+                response.put("message", "Upload session not found");
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            }
+            response.put("success", true);
+            response.put("status", status);
+            return ResponseEntity.ok(response);
+
+        } catch (IOException e) {
+            response.put("success", false);
+            response.put("message", "Failed to read upload session: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * Complete the upload once every chunk has been received
+     */
+    @PostMapping("/{uploadId}/complete")
+    public ResponseEntity<Map<String, Object>> complete(@PathVariable String uploadId) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            StoredFile stored = chunkedUploadService.complete(uploadId);
+            if (stored == null) {
+                response.put("success", false);
+                response.put("message", "Upload session not found");
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            }
+            response.put("success", true);
+            response.put("message", "File uploaded successfully");
+            response.put("filename", stored.getFilename());
+            response.put("originalName", stored.getOriginalName());
+            response.put("fileSize", stored.getSize());
+            response.put("sha256", stored.getSha256());
+            response.put("deduplicated", stored.isDeduplicated());
+            return ResponseEntity.ok(response);
+
+        } catch (IllegalStateException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        } catch (IOException e) {
+            response.put("success", false);
+            response.put("message", "Failed to complete upload: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * Abort a session
+     */
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<Map<String, Object>> abort(@PathVariable String uploadId) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            if (!chunkedUploadService.abort(uploadId)) {
+                response.put("success", false);
+                response.put("message", "Upload session not found");
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            }
+            response.put("success", true);
+            response.put("message", "Upload aborted");
+            return ResponseEntity.ok(response);
+
+        } catch (IOException e) {
+            response.put("success", false);
+            response.put("message", "Failed to abort upload: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * All upload threads are busy
+     */
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<Map<String, Object>> uploadRejected() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", "Too many concurrent uploads, retry later");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+    }
+}
@@ -0,0 +1,42 @@
+package com.ensat.controllers;
+
+import com.ensat.services.ShardMigrationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Administrative operations on the upload store
+ */
+@RestController
+@RequestMapping("/files/admin")
+public class FileAdminController {
+
+    @Autowired
+    private ShardMigrationService shardMigrationService;
+
+    /**
+     * Start moving files from the flat directory into shards
+     */
+    @PostMapping("/migrate-shards")
+    public ResponseEntity<Map<String, Object>> migrateShards() {
+        boolean started = shardMigrationService.start();
+        Map<String, Object> response = shardMigrationService.status();
+        response.put("started", started);
+        return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT).body(response);
+    }
+
+    /**
+     * Progress of the current or last migration
+     */
+    @GetMapping("/migrate-shards")
+    public ResponseEntity<Map<String, Object>> migrationStatus() {
+        return ResponseEntity.ok(shardMigrationService.status());
+    }
+}
@@ -2,16 +2,22 @@ package com.ensat.controllers;
 
 import com.ensat.dto.ErrorResponse;
 import com.ensat.dto.FileInfoResponse;
+import com.ensat.dto.FileMetadata;
+import com.ensat.services.CompressedVariantService;
+import com.ensat.services.FileCatalogService;
 import com.ensat.services.FileStorageService;
+import com.ensat.services.FileTransferService;
+import com.ensat.services.RenditionService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 
 /**
@@ -24,50 +30,70 @@ public class FileDownloadController {
     @Autowired
     private FileStorageService fileStorageService;
 
+    @Autowired
+    private FileTransferService fileTransferService;
+
+    @Autowired
+    private FileCatalogService fileCatalogService;
+
+    @Autowired
+    private RenditionService renditionService;
+
+    @Autowired
+    private CompressedVariantService compressedVariantService;
+
     /**
      * Download a file
      */
     @GetMapping("/download/{filename:.+}")
-    public ResponseEntity<Resource> downloadFile(@PathVariable String filename) {
-        try {
-            Path filePath = fileStorageService.load(filename);
-            Resource resource = new UrlResource(filePath.toUri());
-
-            if (resource.exists() && resource.isReadable()) {
-                return ResponseEntity.ok()
-                        .header(HttpHeaders.CONTENT_DISPOSITION, 
-                               "attachment; filename=\"" + filename + "\"")
-                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                        .body(resource);
-            } else {
-                return ResponseEntity.notFound().build();
-            }
-        } catch (Exception e) {
-            return ResponseEntity.notFound().build();
-        }
+    public void downloadFile(@PathVariable String filename,
+                             HttpServletRequest request,
+                             HttpServletResponse response) {
+        serveFile(filename, null, MediaType.APPLICATION_OCTET_STREAM_VALUE,
+                "attachment; filename=\"" + filename + "\"", request, response);
     }
 
     /**
-     * Serve file as inline content (for images, etc.)
+     * Serve file as inline content (for images, etc.). With w, an image is served
+     * as the nearest rendition at least that wide.
      */
     @GetMapping("/view/{filename:.+}")
-    public ResponseEntity<Resource> viewFile(@PathVariable String filename) {
+    public void viewFile(@PathVariable String filename,
+                         @RequestParam(value = "w", required = false) Integer width,
+                         HttpServletRequest request,
+                         HttpServletResponse response) {
+        serveFile(filename, width, FileStorageService.determineContentType(filename),
+                "inline; filename=\"" + filename + "\"", request, response);
+    }
+
+    private void serveFile(String filename, Integer width, String contentType, String contentDisposition,
+                           HttpServletRequest request, HttpServletResponse response) {
+        if (!FileStorageService.isStoredName(filename)) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
         try {
             Path filePath = fileStorageService.load(filename);
-            Resource resource = new UrlResource(filePath.toUri());
-
-            if (resource.exists() && resource.isReadable()) {
-                String contentType = determineContentType(filename);
-                return ResponseEntity.ok()
-                        .header(HttpHeaders.CONTENT_DISPOSITION, 
-                               "inline; filename=\"" + filename + "\"")
-                        .contentType(MediaType.parseMediaType(contentType))
-                        .body(resource);
+
+            if (Files.isRegularFile(filePath) && Files.isReadable(filePath)) {
+                if (width != null && width > 0) {
+                    filePath = renditionService.renditionFor(filename, width);
+                }
+                if (CompressedVariantService.isCompressible(filename)) {
+                    response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+                }
+                CompressedVariantService.Variant variant = compressedVariantService.negotiate(
+                        filename, filePath, request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+                fileTransferService.serve(variant.getPath(), contentType, variant.getEncoding(),
+                        contentDisposition, request, response);
             } else {
-                return ResponseEntity.notFound().build();
+                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
             }
         } catch (Exception e) {
-            return ResponseEntity.notFound().build();
+            if (!response.isCommitted()) {
+                response.reset();
+                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            }
         }
     }
 
@@ -77,21 +103,32 @@ public class FileDownloadController {
     @GetMapping("/info/{filename:.+}")
     @ResponseBody
     public ResponseEntity<Object> getFileInfo(@PathVariable String filename) {
+        if (!FileStorageService.isStoredName(filename)) {
+            return ResponseEntity.notFound().build();
+        }
         try {
-            if (!fileStorageService.exists(filename)) {
-                return ResponseEntity.notFound().build();
+            FileMetadata metadata = fileCatalogService.get(filename);
+            Path filePath = fileStorageService.load(filename);
+
+            if (metadata == null) {
+                // Not indexed yet, e.g. written outside the app just now
+                if (!fileStorageService.exists(filename)) {
+                    return ResponseEntity.notFound().build();
+                }
+                metadata = new FileMetadata(filename, null, fileStorageService.getFileSize(filename),
+                        FileStorageService.determineContentType(filename), null, 0);
             }
 
-            long fileSize = fileStorageService.getFileSize(filename);
-            Path filePath = fileStorageService.load(filename);
-            
             FileInfoResponse response = new FileInfoResponse(
                 filename, 
-                fileSize, 
+                metadata.getSize(), 
                 filePath.toString(), 
-                determineContentType(filename), 
+                metadata.getContentType(), 
                 true
             );
+            response.setOriginalName(metadata.getOriginalName());
+            response.setSha256(metadata.getSha256());
+            response.setCreatedAt(metadata.getCreatedAt());
             
             return ResponseEntity.ok(response);
 
@@ -100,39 +137,4 @@ public class FileDownloadController {
             return ResponseEntity.status(500).body(errorResponse);
         }
     }
-
-    /**
-     * Determine content type based on file extension
-     */
-    private String determineContentType(String filename) {
-        String extension = filename.substring(filename.lastIndexOf('.') + 1).toLowerCase();
-        
-        switch (extension) {
-            case "jpg":
-            case "jpeg":
-                return "image/jpeg";
-            case "png":
-                return "image/png";
-            case "gif":
-                return "image/gif";
-            case "pdf":
-                return "application/pdf";
-            case "txt":
-                return "text/plain";
-            case "html":
-                return "text/html";
-            case "css":
-                return "text/css";
-            case "js":
-                return "application/javascript";
-            case "json":
-                return "application/json";
-            case "xml":
-                return "application/xml";
-            case "zip":
-                return "application/zip";
-            default:
-                return "application/octet-stream";
-        }
-    }
 }
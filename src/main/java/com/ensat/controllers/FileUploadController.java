@@ -1,22 +1,35 @@
 package com.ensat.controllers;
 
-import org.springframework.beans.factory.annotation.Value;
+import com.ensat.config.FileUploadProperties;
+import com.ensat.dto.FileMetadata;
+import com.ensat.dto.FileUploadResult;
+import com.ensat.dto.StoredFile;
+import com.ensat.services.FileCatalogService;
+import com.ensat.services.FileStorageService;
+import com.ensat.services.MultiFileUploadService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.InputStream;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.stream.Collectors;
 
 /**
  * File Upload Controller for handling file uploads to local storage.
@@ -25,8 +38,23 @@ import java.util.UUID;
 @RequestMapping("/files")
 public class FileUploadController {
 
-    @Value("${file.upload.path:/uploads}")
-    private String uploadPath;
+    private static final int MAX_LIST_PAGE_SIZE = 1000;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private MultiFileUploadService multiFileUploadService;
+
+    @Autowired
+    private FileCatalogService fileCatalogService;
+
+    @Autowired
+    private FileUploadProperties fileUploadProperties;
+
+    @Autowired
+    @Qualifier("asyncUploadExecutor")
+    private ThreadPoolTaskExecutor asyncUploadExecutor;
 
     /**
      * Show file upload form
@@ -49,23 +77,8 @@ public class FileUploadController {
         }
 
         try {
-            // Create upload directory if it doesn't exist
-            Path uploadDir = Paths.get(uploadPath);
-            if (!Files.exists(uploadDir)) {
-                Files.createDirectories(uploadDir);
-            }
-
-            // Generate unique filename
             String originalFilename = file.getOriginalFilename();
-            String fileExtension = "";
-            if (originalFilename != null && originalFilename.contains(".")) {
-                fileExtension = originalFilename.substring(originalFilename.lastIndexOf("."));
-            }
-            String uniqueFilename = UUID.randomUUID().toString() + fileExtension;
-
-            // Save file
-            Path filePath = uploadDir.resolve(uniqueFilename);
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+            String uniqueFilename = fileStorageService.store(file);
 
             redirectAttributes.addFlashAttribute("success", 
                 "File uploaded successfully: " + originalFilename);
@@ -98,37 +111,20 @@ public class FileUploadController {
         StringBuilder errorMessages = new StringBuilder();
 
         try {
-            // Create upload directory if it doesn't exist
-            Path uploadDir = Paths.get(uploadPath);
-            if (!Files.exists(uploadDir)) {
-                Files.createDirectories(uploadDir);
-            }
-
-            for (MultipartFile file : files) {
-                if (!file.isEmpty()) {
-                    try {
-                        // Generate unique filename
-                        String originalFilename = file.getOriginalFilename();
-                        String fileExtension = "";
-                        if (originalFilename != null && originalFilename.contains(".")) {
-                            fileExtension = originalFilename.substring(originalFilename.lastIndexOf("."));
-                        }
-                        String uniqueFilename = UUID.randomUUID().toString() + fileExtension;
-
-                        // Save file
-                        Path filePath = uploadDir.resolve(uniqueFilename);
-                        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-
-                        successCount++;
-                        successMessages.append(originalFilename).append(", ");
-
-                    } catch (IOException e) {
-                        errorCount++;
-                        errorMessages.append(file.getOriginalFilename())
-                                    .append(" (").append(e.getMessage()).append("), ");
-                    }
+            fileStorageService.init();
+
+            List<FileUploadResult> results = multiFileUploadService.storeAll(nonEmpty(files));
+            for (FileUploadResult result : results) {
+                if (result.isSuccess()) {
+                    successCount++;
+                    successMessages.append(result.getOriginalName()).append(", ");
+                } else {
+                    errorCount++;
+                    errorMessages.append(result.getOriginalName())
+                                .append(" (").append(result.getError()).append("), ");
                 }
             }
+            redirectAttributes.addFlashAttribute("results", results);
 
             if (successCount > 0) {
                 redirectAttributes.addFlashAttribute("success", 
@@ -150,6 +146,35 @@ public class FileUploadController {
         return "redirect:/files/upload";
     }
 
+    /**
+     * REST API endpoint for multiple file uploads with a result per file
+     */
+    @PostMapping("/api/upload/multiple")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> uploadMultipleFilesApi(@RequestParam("files") MultipartFile[] files) {
+        Map<String, Object> response = new HashMap<>();
+
+        MultipartFile[] nonEmptyFiles = nonEmpty(files);
+        if (nonEmptyFiles.length == 0) {
+            response.put("success", false);
+            response.put("message", "Please select files to upload");
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        List<FileUploadResult> results = multiFileUploadService.storeAll(nonEmptyFiles);
+        long failed = results.stream().filter(result -> !result.isSuccess()).count();
+
+        response.put("success", failed == 0);
+        response.put("message", (results.size() - failed) + " files uploaded successfully, " + failed + " failed");
+        response.put("results", results);
+        response.put("count", results.size());
+        return ResponseEntity.ok(response);
+    }
+
+    private static MultipartFile[] nonEmpty(MultipartFile[] files) {
+        return Arrays.stream(files).filter(file -> !file.isEmpty()).toArray(MultipartFile[]::new);
+    }
+
     /**
      * REST API endpoint for file upload
      */
@@ -165,30 +190,22 @@ public class FileUploadController {
         }
 
         try {
-            // Create upload directory if it doesn't exist
-            Path uploadDir = Paths.get(uploadPath);
-            if (!Files.exists(uploadDir)) {
-                Files.createDirectories(uploadDir);
-            }
-
-            // Generate unique filename
-            String originalFilename = file.getOriginalFilename();
-            String fileExtension = "";
-            if (originalFilename != null && originalFilename.contains(".")) {
-                fileExtension = originalFilename.substring(originalFilename.lastIndexOf("."));
+            StoredFile stored;
+            try (InputStream inputStream = file.getInputStream()) {
+                stored = fileStorageService.store(inputStream, file.getOriginalFilename());
             }
-            String uniqueFilename = UUID.randomUUID().toString() + fileExtension;
-
-            // Save file
-            Path filePath = uploadDir.resolve(uniqueFilename);
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+            String uniqueFilename = stored.getFilename();
+            String originalFilename = stored.getOriginalName();
+            Path filePath = fileStorageService.load(uniqueFilename);
 
             response.put("success", true);
             response.put("message", "File uploaded successfully");
             response.put("filename", uniqueFilename);
             response.put("originalName", originalFilename);
             response.put("filePath", filePath.toString());
-            response.put("fileSize", file.getSize());
+            response.put("fileSize", stored.getSize());
+            response.put("sha256", stored.getSha256());
+            response.put("deduplicated", stored.isDeduplicated());
 
             return ResponseEntity.ok(response);
 
@@ -200,38 +217,143 @@ public class FileUploadController {
     }
 
     /**
-     * List uploaded files
+     * Raw streaming upload: the request body is the file content and goes straight
+     * to storage, unlike multipart uploads, which the container spools to a temp
+     * file first. Send it with a non-form Content-Type (e.g. application/octet-stream)
+     * so nothing reads the body first.
+     * The body is read on the upload executor, not on a request thread.
      */
-    @GetMapping("/list")
+    @PutMapping("/api/stream/{filename:.+}")
+    @ResponseBody
+    public WebAsyncTask<ResponseEntity<Map<String, Object>>> streamUploadApi(@PathVariable String filename,
+                                                                             HttpServletRequest request) {
+        return storeStreamAsync(filename, request);
+    }
+
+    /**
+     * Raw streaming upload with the original filename as a query parameter
+     */
+    @PostMapping(value = "/api/stream", consumes = "!multipart/form-data")
     @ResponseBody
-    public ResponseEntity<Map<String, Object>> listUploadedFiles() {
+    public WebAsyncTask<ResponseEntity<Map<String, Object>>> streamUploadPostApi(@RequestParam("filename") String filename,
+                                                                                 HttpServletRequest request) {
+        return storeStreamAsync(filename, request);
+    }
+
+    private WebAsyncTask<ResponseEntity<Map<String, Object>>> storeStreamAsync(String filename, HttpServletRequest request) {
+        return new WebAsyncTask<>(fileUploadProperties.getAsyncTimeout().toMillis(), asyncUploadExecutor,
+                () -> storeStream(filename, request));
+    }
+
+    private ResponseEntity<Map<String, Object>> storeStream(String filename, HttpServletRequest request) {
         Map<String, Object> response = new HashMap<>();
-        
-        try {
-            Path uploadDir = Paths.get(uploadPath);
-            if (!Files.exists(uploadDir)) {
-                Files.createDirectories(uploadDir);
-            }
 
-            java.util.List<String> files = Files.list(uploadDir)
-                    .filter(Files::isRegularFile)
-                    .map(Path::getFileName)
-                    .map(Path::toString)
-                    .collect(java.util.stream.Collectors.toList());
+        try {
+            StoredFile stored = fileStorageService.store(request.getInputStream(), filename);
 
             response.put("success", true);
-            response.put("files", files);
-            response.put("count", files.size());
+            response.put("message", "File uploaded successfully");
+            response.put("filename", stored.getFilename());
+            response.put("originalName", stored.getOriginalName());
+            response.put("fileSize", stored.getSize());
+            response.put("sha256", stored.getSha256());
+            response.put("deduplicated", stored.isDeduplicated());
 
             return ResponseEntity.ok(response);
 
         } catch (IOException e) {
             response.put("success", false);
-            response.put("message", "Failed to list files: " + e.getMessage());
+            response.put("message", "Failed to upload file: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
         }
     }
 
+    /**
+     * Check whether a blob with this SHA-256 is already stored, so a client can
+     * skip sending its bytes
+     */
+    @GetMapping("/api/digest/{sha256}")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> checkDigest(@PathVariable String sha256,
+                                                           @RequestParam(value = "filename", required = false) String filename) {
+        Map<String, Object> response = new HashMap<>();
+        String storedName = fileStorageService.findByDigest(sha256, filename);
+
+        response.put("sha256", sha256);
+        response.put("exists", storedName != null);
+        if (storedName == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        response.put("filename", storedName);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Register an upload of an already stored blob by digest, without its bytes
+     */
+    @PostMapping("/api/digest/{sha256}")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> uploadByDigest(@PathVariable String sha256,
+                                                              @RequestParam(value = "filename", required = false) String filename) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            StoredFile stored = fileStorageService.addReference(sha256, filename);
+            if (stored == null) {
+                response.put("success", false);
+                response.put("message", "Content not found, upload the file bytes");
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            }
+
+            response.put("success", true);
+            response.put("message", "File uploaded successfully");
+            response.put("filename", stored.getFilename());
+            response.put("originalName", stored.getOriginalName());
+            response.put("fileSize", stored.getSize());
+            response.put("sha256", stored.getSha256());
+            response.put("deduplicated", true);
+            return ResponseEntity.ok(response);
+
+        } catch (IOException e) {
+            response.put("success", false);
+            response.put("message", "Failed to upload file: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * List uploaded files, sorted by name, size or createdAt. Unfiltered pages are
+     * read from the catalog's sorted indexes; q and contentType filters scan the
+     * whole catalog to count their matches.
+     */
+    @GetMapping("/list")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> listUploadedFiles(@RequestParam(defaultValue = "0") int page,
+                                                                 @RequestParam(defaultValue = "100") int size,
+                                                                 @RequestParam(defaultValue = "name") String sort,
+                                                                 @RequestParam(defaultValue = "asc") String direction,
+                                                                 @RequestParam(value = "q", required = false) String query,
+                                                                 @RequestParam(required = false) String contentType) {
+        Map<String, Object> response = new HashMap<>();
+
+        int pageSize = Math.min(Math.max(size, 1), MAX_LIST_PAGE_SIZE);
+        Page<FileMetadata> entries = fileCatalogService.list(query, contentType, sort,
+                "desc".equalsIgnoreCase(direction), Math.max(page, 0), pageSize);
+        List<String> files = entries.getContent().stream()
+                .map(FileMetadata::getName)
+                .collect(Collectors.toList());
+
+        response.put("success", true);
+        response.put("files", files);
+        response.put("entries", entries.getContent());
+        response.put("count", entries.getTotalElements());
+        response.put("page", entries.getNumber());
+        response.put("size", entries.getSize());
+        response.put("totalPages", entries.getTotalPages());
+
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Delete uploaded file
      */
@@ -241,15 +363,11 @@ public class FileUploadController {
         Map<String, Object> response = new HashMap<>();
         
         try {
-            Path filePath = Paths.get(uploadPath).resolve(filename);
-            
-            if (!Files.exists(filePath)) {
+            if (!FileStorageService.isStoredName(filename) || !fileStorageService.delete(filename)) {
                 response.put("success", false);
                 response.put("message", "File not found");
                 return ResponseEntity.notFound().build();
             }
-
-            Files.delete(filePath);
             
             response.put("success", true);
             response.put("message", "File deleted successfully");
@@ -261,4 +379,16 @@ public class FileUploadController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
         }
     }
+
+    /**
+     * All upload threads are busy
+     */
+    @ExceptionHandler(TaskRejectedException.class)
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> uploadRejected() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", "Too many concurrent uploads, retry later");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+    }
 }
@@ -0,0 +1,126 @@
+package com.ensat.controllers;
+
+import com.ensat.dto.ErrorResponse;
+import com.ensat.dto.ProductPage;
+import com.ensat.dto.ProductView;
+import com.ensat.dto.ProductViewPage;
+import com.ensat.entities.Product;
+import com.ensat.services.ProductService;
+import com.ensat.services.ProductServiceImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * JSON API for reading products. Lists read only the selected columns
+ * (?fields=name,price) and every response carries an ETag derived from the
+ * product versions, so clients revalidate with If-None-Match and get a 304
+ * without a body when nothing changed.
+ */
+@RestController
+@RequestMapping("/api/products")
+public class ProductApiController {
+
+    static final int MAX_IDS = 100;
+
+    @Autowired
+    private ProductService productService;
+
+    /**
+     * One page of products in id order, continued with ?cursor=<nextCursor>
+     */
+    @GetMapping("")
+    public ResponseEntity<Object> list(@RequestParam(required = false) String cursor,
+                                       @RequestParam(defaultValue = "" + ProductServiceImpl.DEFAULT_PAGE_SIZE) int size,
+                                       @RequestParam(required = false) String fields) {
+        Set<ProductView.Field> selected = ProductView.Field.parse(fields);
+        ProductViewPage page = productService.listProductViews(ProductPage.decodeCursor(cursor), size, selected);
+        return ok(etag(page.getProducts(), selected, page.getNextCursor()), page);
+    }
+
+    /**
+     * Several products at once, e.g. ?ids=1,2,3. Ids that do not exist are
+     * listed under "missing".
+     */
+    @GetMapping(value = "", params = "ids")
+    public ResponseEntity<Object> getMany(@RequestParam List<Integer> ids,
+                                          @RequestParam(required = false) String fields) {
+        Set<Integer> unique = new LinkedHashSet<>(ids);
+        if (unique.size() > MAX_IDS) {
+            throw new IllegalArgumentException("At most " + MAX_IDS + " ids per request");
+        }
+        Set<ProductView.Field> selected = ProductView.Field.parse(fields);
+        List<ProductView> products = productService.getProductViews(unique, selected);
+        for (ProductView product : products) {
+            unique.remove(product.getId());
+        }
+        String etag = etag(products, selected, unique.toString());
+        Map<String, Object> body = new HashMap<>();
+        body.put("products", products);
+        body.put("missing", unique);
+        return ok(etag, body);
+    }
+
+    /**
+     * One product, served from the product cache. The ETag is its version.
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<Object> get(@PathVariable Integer id,
+                                      @RequestParam(required = false) String fields) {
+        Set<ProductView.Field> selected = ProductView.Field.parse(fields);
+        Product product = productService.getProductById(id);
+        String etag = "\"" + product.getVersion() + fieldsTag(selected) + "\"";
+        return ok(etag, ProductView.of(product, selected));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Object> handleInvalidRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+    }
+
+    /**
+     * The ETag is compared with If-None-Match when the entity is written, which
+     * turns a match into a 304 without a body
+     */
+    private static ResponseEntity<Object> ok(String etag, Object body) {
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(body);
+    }
+
+    /**
+     * Digest of the ids and versions shown, the selected fields and whatever
+     * else the response depends on
+     */
+    static String etag(List<ProductView> products, Set<ProductView.Field> fields, String extra) {
+        StringBuilder key = new StringBuilder(fieldsTag(fields)).append('|').append(extra);
+        for (ProductView product : products) {
+            key.append('|').append(product.getId()).append('@').append(product.getVersion());
+        }
+        return "\"" + DigestUtils.md5DigestAsHex(key.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    /**
+     * The same version with other fields is a different representation
+     */
+    private static String fieldsTag(Set<ProductView.Field> fields) {
+        if (fields.equals(ProductView.Field.ALL)) {
+            return "";
+        }
+        StringBuilder tag = new StringBuilder("-");
+        for (ProductView.Field field : fields) {
+            tag.append(field.ordinal());
+        }
+        return tag.toString();
+    }
+}
@@ -1,17 +1,25 @@
 package com.ensat.controllers;
 
+import com.ensat.dto.ProductPage;
 import com.ensat.entities.Product;
 import com.ensat.services.ProductService;
+import com.ensat.services.ProductServiceImpl;
+import com.ensat.services.RenderedPageService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.context.request.WebRequest;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 
 
@@ -25,32 +33,44 @@ public class ProductController {
      @Autowired
      private ProductService productService;
 
+    @Autowired
+    private RenderedPageService renderedPageService;
+
    
 
     /**
-     * List all products.
+     * List products one keyset page at a time. The page is served from the
+     * rendered page cache, or as a 304 when the client's ETag still matches.
      *
+     * @param cursor opaque next-page token, absent for the first page
+     * @param size page size, capped by the service
      * @param model
-     * @return
      */
    @GetMapping("/")
-    public String list(Model model) {
-        model.addAttribute("products", productService.listAllProducts());
-        System.out.println("Returning products:");
-        return "products";
+    public void list(@RequestParam(required = false) String cursor,
+                     @RequestParam(defaultValue = "" + ProductServiceImpl.DEFAULT_PAGE_SIZE) int size,
+                     Model model, WebRequest webRequest,
+                     HttpServletRequest request, HttpServletResponse response) throws Exception {
+        ProductPage page = productService.listProducts(ProductPage.decodeCursor(cursor), size);
+        model.addAttribute("products", page.getProducts());
+        model.addAttribute("page", page);
+        renderedPageService.render("products", RenderedPageService.pageKey(cursor, page),
+                model, webRequest, request, response);
     }
 
     /**
-     * View a specific product by its id.
+     * View a specific product by its id, rendered at most once per product version.
      *
      * @param id
      * @param model
-     * @return
      */
     @GetMapping("/{id}")
-    public String showProduct(@PathVariable Integer id, Model model) {
-        model.addAttribute("product", productService.getProductById(id));
-        return "productshow";
+    public void showProduct(@PathVariable Integer id, Model model, WebRequest webRequest,
+                            HttpServletRequest request, HttpServletResponse response) throws Exception {
+        Product product = productService.getProductById(id);
+        model.addAttribute("product", product);
+        renderedPageService.render("productshow", RenderedPageService.productKey(product),
+                model, webRequest, request, response);
     }
 
     // Afficher le formulaire de modification du Product
@@ -0,0 +1,42 @@
+package com.ensat.controllers;
+
+import com.ensat.services.ProductExportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Controller for full catalog dumps streamed to the response
+ */
+@RestController
+@RequestMapping("/products")
+public class ProductExportController {
+
+    @Autowired
+    private ProductExportService productExportService;
+
+    /**
+     * Export every product as CSV or NDJSON
+     */
+    @GetMapping("/export")
+    public void export(@RequestParam(defaultValue = "csv") String format,
+                       HttpServletResponse response) throws IOException {
+        ProductExportService.Format exportFormat = "ndjson".equalsIgnoreCase(format)
+                ? ProductExportService.Format.NDJSON
+                : ProductExportService.Format.CSV;
+
+        String extension = exportFormat == ProductExportService.Format.CSV ? "csv" : "ndjson";
+        response.setContentType(exportFormat == ProductExportService.Format.CSV
+                ? "text/csv;charset=UTF-8"
+                : "application/x-ndjson;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"products." + extension + "\"");
+
+        productExportService.export(response.getOutputStream(), exportFormat);
+    }
+}
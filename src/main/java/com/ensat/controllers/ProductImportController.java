@@ -0,0 +1,54 @@
+package com.ensat.controllers;
+
+import com.ensat.dto.ErrorResponse;
+import com.ensat.dto.ProductImportReport;
+import com.ensat.services.ProductImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+
+/**
+ * Controller for bulk product import from a streamed request body
+ */
+@RestController
+@RequestMapping("/products")
+public class ProductImportController {
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    /**
+     * Import products from a CSV body with a header line
+     */
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<Object> importCsv(HttpServletRequest request) {
+        return importProducts(request, ProductImportService.Format.CSV);
+    }
+
+    /**
+     * Import products from newline-delimited JSON objects
+     */
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", "application/jsonl"})
+    public ResponseEntity<Object> importNdjson(HttpServletRequest request) {
+        return importProducts(request, ProductImportService.Format.NDJSON);
+    }
+
+    private ResponseEntity<Object> importProducts(HttpServletRequest request, ProductImportService.Format format) {
+        try {
+            ProductImportReport report = productImportService.importProducts(request.getInputStream(), format);
+            return ResponseEntity.ok(report);
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        } catch (IOException e) {
+            ErrorResponse errorResponse = new ErrorResponse("Failed to import products: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.ensat.controllers;
+
+import com.ensat.dto.ProductSearchHit;
+import com.ensat.services.ProductSearchService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Controller for product search and autocomplete, served from memory
+ */
+@RestController
+@RequestMapping("/products")
+public class ProductSearchController {
+
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    /**
+     * Search products by name and product id
+     */
+    @GetMapping("/search")
+    public ResponseEntity<Map<String, Object>> search(@RequestParam("q") String query,
+                                                      @RequestParam(defaultValue = "20") int limit) {
+        List<ProductSearchHit> hits = productSearchService.search(query, limit);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("query", query);
+        response.put("results", hits);
+        response.put("count", hits.size());
+        response.put("complete", productSearchService.isReady());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Top-K suggestions for a typed prefix
+     */
+    @GetMapping("/autocomplete")
+    public ResponseEntity<List<ProductSearchHit>> autocomplete(@RequestParam("prefix") String prefix,
+                                                               @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(productSearchService.autocomplete(prefix, limit));
+    }
+}
@@ -0,0 +1,66 @@
+package com.ensat.controllers;
+
+import com.ensat.dto.ErrorResponse;
+import com.ensat.dto.ProductUpdate;
+import com.ensat.dto.ProductUpdateReport;
+import com.ensat.services.ProductUpdateService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Controller for partial product updates (price and name) applied in the
+ * database without loading the product
+ */
+@RestController
+@RequestMapping("/products")
+public class ProductUpdateController {
+
+    @Autowired
+    private ProductUpdateService productUpdateService;
+
+    /**
+     * Update one product, e.g. {"op": "INCREMENT_PRICE", "amount": -5, "version": 3}.
+     * Answers 409 on a version conflict and 422 if the price would go negative.
+     */
+    @PatchMapping("/{id}")
+    public ResponseEntity<Object> update(@PathVariable Integer id, @RequestBody ProductUpdate update) {
+        update.setId(id);
+        ProductUpdateReport report = productUpdateService.update(update);
+        switch (report.getResults().get(0).getStatus()) {
+            case NOT_FOUND:
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(report);
+            case CONFLICT:
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(report);
+            case REJECTED:
+                return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(report);
+            default:
+                return ResponseEntity.ok(report);
+        }
+    }
+
+    /**
+     * Apply a list of updates in one transaction. With atomic=true nothing is
+     * kept unless every update applies; otherwise each result says what happened.
+     */
+    @PatchMapping("")
+    public ResponseEntity<Object> updateBatch(@RequestBody List<ProductUpdate> updates,
+                                              @RequestParam(defaultValue = "false") boolean atomic) {
+        return ResponseEntity.ok(productUpdateService.update(updates, atomic));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Object> handleInvalidUpdate(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+    }
+
+    @ExceptionHandler(ConcurrencyFailureException.class)
+    public ResponseEntity<Object> handleContention(ConcurrencyFailureException e) {
+        ErrorResponse errorResponse = new ErrorResponse("Products are busy, retry later");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
+    }
+}
@@ -0,0 +1,97 @@
+package com.ensat.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Product cache invalidations sent from one node to its peers
+ */
+public class CacheInvalidationBatch {
+    private String origin;
+    private long sequence;
+    private boolean listsChanged;
+    private List<Entry> entries = new ArrayList<>();
+
+    public CacheInvalidationBatch() {
+    }
+
+    public CacheInvalidationBatch(String origin, long sequence) {
+        this.origin = origin;
+        this.sequence = sequence;
+    }
+
+    // Getters and setters
+    public String getOrigin() {
+        return origin;
+    }
+
+    public void setOrigin(String origin) {
+        this.origin = origin;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public boolean isListsChanged() {
+        return listsChanged;
+    }
+
+    public void setListsChanged(boolean listsChanged) {
+        this.listsChanged = listsChanged;
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public void setEntries(List<Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * A product written at a version, or deleted
+     */
+    public static class Entry {
+        private Integer id;
+        private Integer version;
+        private boolean deleted;
+
+        public Entry() {
+        }
+
+        public Entry(Integer id, Integer version, boolean deleted) {
+            this.id = id;
+            this.version = version;
+            this.deleted = deleted;
+        }
+
+        public Integer getId() {
+            return id;
+        }
+
+        public void setId(Integer id) {
+            this.id = id;
+        }
+
+        public Integer getVersion() {
+            return version;
+        }
+
+        public void setVersion(Integer version) {
+            this.version = version;
+        }
+
+        public boolean isDeleted() {
+            return deleted;
+        }
+
+        public void setDeleted(boolean deleted) {
+            this.deleted = deleted;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.ensat.dto;
+
+import java.util.List;
+
+/**
+ * State of a resumable chunked upload session
+ */
+public class ChunkedUploadStatus {
+    private String uploadId;
+    private String originalName;
+    private long size;
+    private long chunkSize;
+    private int chunkCount;
+    private List<long[]> receivedRanges;
+    private int receivedChunks;
+
+    public ChunkedUploadStatus(String uploadId, String originalName, long size, long chunkSize,
+                               int chunkCount, List<long[]> receivedRanges, int receivedChunks) {
+        this.uploadId = uploadId;
+        this.originalName = originalName;
+        this.size = size;
+        this.chunkSize = chunkSize;
+        this.chunkCount = chunkCount;
+        this.receivedRanges = receivedRanges;
+        this.receivedChunks = receivedChunks;
+    }
+
+    // Getters and setters
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    public void setUploadId(String uploadId) {
+        this.uploadId = uploadId;
+    }
+
+    public String getOriginalName() {
+        return originalName;
+    }
+
+    public void setOriginalName(String originalName) {
+        this.originalName = originalName;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public long getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(long chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    public void setChunkCount(int chunkCount) {
+        this.chunkCount = chunkCount;
+    }
+
+    /**
+     * Received chunk indexes as inclusive [first, last] runs
+     */
+    public List<long[]> getReceivedRanges() {
+        return receivedRanges;
+    }
+
+    public void setReceivedRanges(List<long[]> receivedRanges) {
+        this.receivedRanges = receivedRanges;
+    }
+
+    public int getReceivedChunks() {
+        return receivedChunks;
+    }
+
+    public void setReceivedChunks(int receivedChunks) {
+        this.receivedChunks = receivedChunks;
+    }
+
+    public boolean isComplete() {
+        return receivedChunks == chunkCount;
+    }
+}
@@ -9,6 +9,9 @@ public class FileInfoResponse {
     private String path;
     private String contentType;
     private boolean exists;
+    private String originalName;
+    private String sha256;
+    private long createdAt;
 
     public FileInfoResponse(String name, long size, String path, String contentType, boolean exists) {
         this.name = name;
@@ -58,4 +61,28 @@ public class FileInfoResponse {
     public void setExists(boolean exists) {
         this.exists = exists;
     }
+
+    public String getOriginalName() {
+        return originalName;
+    }
+
+    public void setOriginalName(String originalName) {
+        this.originalName = originalName;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
 }
@@ -0,0 +1,74 @@
+package com.ensat.dto;
+
+/**
+ * Catalog entry describing one stored file
+ */
+public class FileMetadata {
+    private String name;
+    private String originalName;
+    private long size;
+    private String contentType;
+    private String sha256;
+    private long createdAt;
+
+    public FileMetadata() {
+    }
+
+    public FileMetadata(String name, String originalName, long size, String contentType, String sha256, long createdAt) {
+        this.name = name;
+        this.originalName = originalName;
+        this.size = size;
+        this.contentType = contentType;
+        this.sha256 = sha256;
+        this.createdAt = createdAt;
+    }
+
+    // Getters and setters
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getOriginalName() {
+        return originalName;
+    }
+
+    public void setOriginalName(String originalName) {
+        this.originalName = originalName;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,65 @@
+package com.ensat.dto;
+
+/**
+ * Per-file outcome of a multi-file upload
+ */
+public class FileUploadResult {
+    private String originalName;
+    private String filename;
+    private long size;
+    private String sha256;
+    private String error;
+
+    public FileUploadResult(String originalName, String filename, long size, String sha256, String error) {
+        this.originalName = originalName;
+        this.filename = filename;
+        this.size = size;
+        this.sha256 = sha256;
+        this.error = error;
+    }
+
+    // Getters and setters
+    public String getOriginalName() {
+        return originalName;
+    }
+
+    public void setOriginalName(String originalName) {
+        this.originalName = originalName;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
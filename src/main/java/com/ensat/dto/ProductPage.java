@@ -0,0 +1,74 @@
+package com.ensat.dto;
+
+import com.ensat.entities.Product;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * One keyset-paginated page of products
+ */
+public class ProductPage {
+    private List<Product> products;
+    private String nextCursor;
+    private int size;
+
+    public ProductPage(List<Product> products, String nextCursor, int size) {
+        this.products = products;
+        this.nextCursor = nextCursor;
+        this.size = size;
+    }
+
+    /**
+     * Encode the last id of a page as an opaque cursor token
+     */
+    public static String encodeCursor(Integer lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.valueOf(lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor token back to the id to seek after, or 0 for the first page
+     */
+    public static Integer decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            return Math.max(0, Integer.parseInt(decoded));
+        } catch (IllegalArgumentException e) {
+            return 0;
+        }
+    }
+
+    // Getters and setters
+    public List<Product> getProducts() {
+        return products;
+    }
+
+    public void setProducts(List<Product> products) {
+        this.products = products;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public boolean isHasNext() {
+        return nextCursor != null;
+    }
+}
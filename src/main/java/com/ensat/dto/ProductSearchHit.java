@@ -0,0 +1,53 @@
+package com.ensat.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Product search or autocomplete result, served from the search index
+ */
+public class ProductSearchHit {
+    private Integer id;
+    private String productId;
+    private String name;
+    private BigDecimal price;
+
+    public ProductSearchHit(Integer id, String productId, String name, BigDecimal price) {
+        this.id = id;
+        this.productId = productId;
+        this.name = name;
+        this.price = price;
+    }
+
+    // Getters and setters
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public void setProductId(String productId) {
+        this.productId = productId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+}
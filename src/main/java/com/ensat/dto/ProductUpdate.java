@@ -0,0 +1,70 @@
+package com.ensat.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * One partial product update. With a version the update only applies if the
+ * product is still at that version.
+ */
+public class ProductUpdate {
+
+    public enum Op { SET_PRICE, INCREMENT_PRICE, RENAME }
+
+    private Integer id;
+    private Integer version;
+    private Op op;
+    private BigDecimal amount; // new price, or the (possibly negative) increment
+    private String name;
+
+    public ProductUpdate() {
+    }
+
+    public ProductUpdate(Integer id, Integer version, Op op, BigDecimal amount, String name) {
+        this.id = id;
+        this.version = version;
+        this.op = op;
+        this.amount = amount;
+        this.name = name;
+    }
+
+    // Getters and setters
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
+    public Op getOp() {
+        return op;
+    }
+
+    public void setOp(Op op) {
+        this.op = op;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+}
@@ -0,0 +1,100 @@
+package com.ensat.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a batch of partial product updates, one result per update in
+ * request order
+ */
+public class ProductUpdateReport {
+    private int updated;
+    private int failed;
+    private int attempts;
+    private boolean rolledBack;
+    private List<Result> results = new ArrayList<>();
+
+    // Getters and setters
+    public int getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(int updated) {
+        this.updated = updated;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public boolean isRolledBack() {
+        return rolledBack;
+    }
+
+    public void setRolledBack(boolean rolledBack) {
+        this.rolledBack = rolledBack;
+    }
+
+    public List<Result> getResults() {
+        return results;
+    }
+
+    public void setResults(List<Result> results) {
+        this.results = results;
+    }
+
+    /**
+     * UPDATED carries the new version; CONFLICT and REJECTED the current one.
+     * In a rolled back batch, UPDATED means the update would have applied.
+     */
+    public static class Result {
+
+        public enum Status { UPDATED, CONFLICT, NOT_FOUND, REJECTED }
+
+        private Integer id;
+        private Status status;
+        private Integer version;
+
+        public Result(Integer id, Status status, Integer version) {
+            this.id = id;
+            this.status = status;
+            this.version = version;
+        }
+
+        public Integer getId() {
+            return id;
+        }
+
+        public void setId(Integer id) {
+            this.id = id;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public void setStatus(Status status) {
+            this.status = status;
+        }
+
+        public Integer getVersion() {
+            return version;
+        }
+
+        public void setVersion(Integer version) {
+            this.version = version;
+        }
+    }
+}
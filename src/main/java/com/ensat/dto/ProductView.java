@@ -0,0 +1,166 @@
+package com.ensat.dto;
+
+import com.ensat.entities.Product;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Product as served by the JSON API, holding only the selected fields. Fields
+ * that were not selected (or are empty) are left out of the JSON.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductView {
+
+    /**
+     * Selectable fields, by entity property name. The id and version are always included.
+     */
+    public enum Field {
+        ID("id"), VERSION("version"), PRODUCT_ID("productId"), NAME("name"), PRICE("price"), IMAGE_PATH("imagePath");
+
+        public static final Set<Field> ALL = Collections.unmodifiableSet(EnumSet.allOf(Field.class));
+
+        private final String property;
+
+        Field(String property) {
+            this.property = property;
+        }
+
+        public String getProperty() {
+            return property;
+        }
+
+        /**
+         * Parse a comma separated list of property names; empty means all fields
+         */
+        public static Set<Field> parse(String fields) {
+            if (fields == null || fields.trim().isEmpty()) {
+                return ALL;
+            }
+            Set<Field> selected = EnumSet.of(ID, VERSION);
+            for (String name : fields.split(",")) {
+                String property = name.trim();
+                Field field = Arrays.stream(values())
+                        .filter(f -> f.property.equals(property))
+                        .findFirst()
+                        .orElseThrow(() -> new IllegalArgumentException("Unknown product field: " + property));
+                selected.add(field);
+            }
+            return selected;
+        }
+    }
+
+    private Integer id;
+    private Integer version;
+    private String productId;
+    private String name;
+    private BigDecimal price;
+    private String imagePath;
+
+    /**
+     * Copy the selected fields of an entity
+     */
+    public static ProductView of(Product product, Set<Field> fields) {
+        ProductView view = new ProductView();
+        for (Field field : fields) {
+            switch (field) {
+                case ID:
+                    view.setId(product.getId());
+                    break;
+                case VERSION:
+                    view.setVersion(product.getVersion());
+                    break;
+                case PRODUCT_ID:
+                    view.setProductId(product.getProductId());
+                    break;
+                case NAME:
+                    view.setName(product.getName());
+                    break;
+                case PRICE:
+                    view.setPrice(product.getPrice());
+                    break;
+                default:
+                    view.setImagePath(product.getImagePath());
+            }
+        }
+        return view;
+    }
+
+    /**
+     * Set one field from a projected column value
+     */
+    public void set(Field field, Object value) {
+        switch (field) {
+            case ID:
+                id = (Integer) value;
+                break;
+            case VERSION:
+                version = (Integer) value;
+                break;
+            case PRODUCT_ID:
+                productId = (String) value;
+                break;
+            case NAME:
+                name = (String) value;
+                break;
+            case PRICE:
+                price = (BigDecimal) value;
+                break;
+            default:
+                imagePath = (String) value;
+        }
+    }
+
+    // Getters and setters
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public void setProductId(String productId) {
+        this.productId = productId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+
+    public String getImagePath() {
+        return imagePath;
+    }
+
+    public void setImagePath(String imagePath) {
+        this.imagePath = imagePath;
+    }
+}
@@ -0,0 +1,43 @@
+package com.ensat.dto;
+
+import java.util.List;
+
+/**
+ * One keyset-paginated page of projected products, see ProductPage for the cursor
+ */
+public class ProductViewPage {
+    private List<ProductView> products;
+    private String nextCursor;
+    private int size;
+
+    public ProductViewPage(List<ProductView> products, String nextCursor, int size) {
+        this.products = products;
+        this.nextCursor = nextCursor;
+        this.size = size;
+    }
+
+    // Getters and setters
+    public List<ProductView> getProducts() {
+        return products;
+    }
+
+    public void setProducts(List<ProductView> products) {
+        this.products = products;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+}
@@ -0,0 +1,60 @@
+package com.ensat.dto;
+
+/**
+ * Result of storing a file: stored name, original name, size and content digest
+ */
+public class StoredFile {
+    private String filename;
+    private String originalName;
+    private long size;
+    private String sha256;
+    private boolean deduplicated;
+
+    public StoredFile(String filename, String originalName, long size, String sha256) {
+        this.filename = filename;
+        this.originalName = originalName;
+        this.size = size;
+        this.sha256 = sha256;
+    }
+
+    // Getters and setters
+    public String getFilename() {
+        return filename;
+    }
+
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+
+    public String getOriginalName() {
+        return originalName;
+    }
+
+    public void setOriginalName(String originalName) {
+        this.originalName = originalName;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public boolean isDeduplicated() {
+        return deduplicated;
+    }
+
+    public void setDeduplicated(boolean deduplicated) {
+        this.deduplicated = deduplicated;
+    }
+}
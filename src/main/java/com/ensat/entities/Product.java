@@ -4,6 +4,7 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Version;
 import java.math.BigDecimal;
 
@@ -13,8 +14,11 @@ import java.math.BigDecimal;
 @Entity
 public class Product {
 
+    // Pooled (pooled-lo) ids let Hibernate batch inserts; the generator keeps
+    // using hibernate_sequence, which GenerationType.AUTO used before
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_seq")
+    @SequenceGenerator(name = "product_seq", sequenceName = "hibernate_sequence", allocationSize = 50)
     private Integer id;
 
     @Version
@@ -0,0 +1,16 @@
+package com.ensat.events;
+
+/**
+ * Published after the last reference to a stored file has been deleted
+ */
+public class FileDeletedEvent {
+    private final String filename;
+
+    public FileDeletedEvent(String filename) {
+        this.filename = filename;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+}
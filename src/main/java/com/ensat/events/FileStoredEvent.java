@@ -0,0 +1,18 @@
+package com.ensat.events;
+
+import com.ensat.dto.StoredFile;
+
+/**
+ * Published after a file has been stored under its final name
+ */
+public class FileStoredEvent {
+    private final StoredFile storedFile;
+
+    public FileStoredEvent(StoredFile storedFile) {
+        this.storedFile = storedFile;
+    }
+
+    public StoredFile getStoredFile() {
+        return storedFile;
+    }
+}
@@ -1,9 +1,59 @@
 package com.ensat.repositories;
 
 import com.ensat.entities.Product;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
-public interface ProductRepository extends JpaRepository<Product, Integer> {
+import java.math.BigDecimal;
+import java.util.List;
+
+public interface ProductRepository extends JpaRepository<Product, Integer>, ProductRepositoryCustom {
+
+    /**
+     * Keyset (seek) page: products with an id strictly after the given one, in id order.
+     * Only the page size of the pageable is used, the offset is always zero.
+     */
+    List<Product> findByIdGreaterThanOrderByIdAsc(Integer id, Pageable pageable);
+
+    /**
+     * Keyset page bounded above, used to scan disjoint id ranges in parallel.
+     */
+    List<Product> findByIdGreaterThanAndIdLessThanEqualOrderByIdAsc(Integer id, Integer maxId, Pageable pageable);
+
+    @Query("select max(p.id) from Product p")
+    Integer findMaxId();
+
+    @Query("select p.id from Product p order by p.id desc")
+    List<Integer> findIdsNewestFirst(Pageable pageable);
+
+    @Query("select p.version from Product p where p.id = :id")
+    Integer findVersionById(@Param("id") Integer id);
+
+    /*
+     * Partial updates: one UPDATE each, bumping the version. With a null version
+     * the update is unconditional, otherwise it only matches that version.
+     * They must run inside a transaction and return the number of rows changed.
+     */
+
+    @Modifying
+    @Query("update Product p set p.price = :price, p.version = p.version + 1"
+            + " where p.id = :id and (:version is null or p.version = :version)")
+    int updatePrice(@Param("id") Integer id, @Param("version") Integer version, @Param("price") BigDecimal price);
+
+    /**
+     * Add delta to the price (a missing price counts as zero); never takes the price below zero
+     */
+    @Modifying
+    @Query("update Product p set p.price = coalesce(p.price, 0) + :delta, p.version = p.version + 1"
+            + " where p.id = :id and (:version is null or p.version = :version)"
+            + " and coalesce(p.price, 0) + :delta >= 0")
+    int incrementPrice(@Param("id") Integer id, @Param("version") Integer version, @Param("delta") BigDecimal delta);
+
+    @Modifying
+    @Query("update Product p set p.name = :name, p.version = p.version + 1"
+            + " where p.id = :id and (:version is null or p.version = :version)")
+    int updateName(@Param("id") Integer id, @Param("version") Integer version, @Param("name") String name);
 
 }
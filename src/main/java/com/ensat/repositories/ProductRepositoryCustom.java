@@ -0,0 +1,33 @@
+package com.ensat.repositories;
+
+import com.ensat.dto.ProductView;
+import com.ensat.entities.Product;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Product reads that need more control than derived queries give: projections
+ * that select only the requested columns, and the export scroll
+ */
+public interface ProductRepositoryCustom {
+
+    /**
+     * Keyset page of products with an id after the given one, in id order
+     */
+    List<ProductView> findViewsAfter(Integer afterId, int limit, Set<ProductView.Field> fields);
+
+    /**
+     * Products with the given ids, in id order; missing ids are skipped
+     */
+    List<ProductView> findViewsByIds(Collection<Integer> ids, Set<ProductView.Field> fields);
+
+    /**
+     * Scroll over every product in id order without materializing the result.
+     * The fetch size applies to this query only. Must be consumed inside a
+     * (read-only) transaction and closed afterwards.
+     */
+    Stream<Product> streamAllInIdOrder(int fetchSize);
+}
@@ -0,0 +1,80 @@
+package com.ensat.repositories;
+
+import com.ensat.dto.ProductView;
+import com.ensat.entities.Product;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+/**
+ * Criteria tuple queries over just the selected product columns, and the
+ * export scroll with a per-query fetch size
+ */
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Stream<Product> streamAllInIdOrder(int fetchSize) {
+        return entityManager.createQuery("select p from Product p order by p.id", Product.class)
+                .setHint(HINT_FETCH_SIZE, fetchSize)
+                .setHint(HINT_READONLY, true)
+                .setHint(HINT_CACHEABLE, false)
+                .getResultStream();
+    }
+
+    @Override
+    public List<ProductView> findViewsAfter(Integer afterId, int limit, Set<ProductView.Field> fields) {
+        return findViews(fields, limit, (cb, root) -> cb.greaterThan(root.get("id"), afterId));
+    }
+
+    @Override
+    public List<ProductView> findViewsByIds(Collection<Integer> ids, Set<ProductView.Field> fields) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return findViews(fields, ids.size(), (cb, root) -> root.get("id").in(ids));
+    }
+
+    private List<ProductView> findViews(Set<ProductView.Field> fields, int limit,
+                                        BiFunction<CriteriaBuilder, Root<Product>, Predicate> where) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Product> root = query.from(Product.class);
+
+        List<Selection<?>> selections = new ArrayList<>();
+        for (ProductView.Field field : fields) {
+            selections.add(root.get(field.getProperty()).alias(field.getProperty()));
+        }
+        query.multiselect(selections)
+                .where(where.apply(cb, root))
+                .orderBy(cb.asc(root.get("id")));
+
+        List<ProductView> views = new ArrayList<>();
+        for (Tuple tuple : entityManager.createQuery(query).setMaxResults(limit).getResultList()) {
+            ProductView view = new ProductView();
+            for (ProductView.Field field : fields) {
+                view.set(field, tuple.get(field.getProperty()));
+            }
+            views.add(view);
+        }
+        return views;
+    }
+}
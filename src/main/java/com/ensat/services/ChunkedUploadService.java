@@ -0,0 +1,392 @@
+package com.ensat.services;
+
+import com.ensat.config.FileUploadProperties;
+import com.ensat.dto.ChunkedUploadStatus;
+import com.ensat.dto.StoredFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Service for resumable chunked uploads. Each session lives in its own
+ * directory under the upload path, so sessions survive restarts: a
+ * preallocated data file written at chunk offsets, the session properties and
+ * one marker file per received chunk holding its SHA-256. Chunks of a session
+ * are written concurrently under its read lock; completing or aborting it
+ * takes the write lock.
+ */
+@Service
+public class ChunkedUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedUploadService.class);
+
+    private static final String SESSIONS_DIR = ".chunked";
+    private static final String SESSION_FILE = "session.properties";
+    private static final String DATA_FILE = "data";
+    private static final String CHUNKS_DIR = "chunks";
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final ConcurrentMap<String, ReadWriteLock> sessionLocks = new ConcurrentHashMap<>();
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private FileUploadProperties fileUploadProperties;
+
+    /**
+     * Start a new upload session and preallocate its data file
+     */
+    public ChunkedUploadStatus initiate(String originalFilename, long size, Long chunkSize) throws IOException {
+        long effectiveChunkSize = chunkSize != null ? chunkSize : fileUploadProperties.getChunkSize();
+        if (size <= 0 || size > fileUploadProperties.getMaxChunkedFileSize()) {
+            throw new IllegalArgumentException("File size must be between 1 and "
+                    + fileUploadProperties.getMaxChunkedFileSize() + " bytes");
+        }
+        if (effectiveChunkSize <= 0 || effectiveChunkSize > fileUploadProperties.getMaxChunkSize()) {
+            throw new IllegalArgumentException("Chunk size must be between 1 and "
+                    + fileUploadProperties.getMaxChunkSize() + " bytes");
+        }
+        if ((size + effectiveChunkSize - 1) / effectiveChunkSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many chunks, use a larger chunk size");
+        }
+
+        String uploadId = UUID.randomUUID().toString();
+        Path sessionDir = sessionDir(uploadId);
+        Files.createDirectories(sessionDir.resolve(CHUNKS_DIR));
+
+        try (RandomAccessFile data = new RandomAccessFile(sessionDir.resolve(DATA_FILE).toFile(), "rw")) {
+            data.setLength(size);
+        }
+
+        Properties session = new Properties();
+        session.setProperty("originalName", originalFilename != null ? originalFilename : "");
+        session.setProperty("size", String.valueOf(size));
+        session.setProperty("chunkSize", String.valueOf(effectiveChunkSize));
+        try (Writer writer = Files.newBufferedWriter(sessionDir.resolve(SESSION_FILE), StandardCharsets.UTF_8)) {
+            session.store(writer, "chunked upload session");
+        }
+
+        return status(uploadId);
+    }
+
+    /**
+     * Write chunk N at its offset. Chunks may arrive in any order and in parallel.
+     * Returns the SHA-256 of the chunk, or null when the session does not exist.
+     */
+    public String writeChunk(String uploadId, int index, InputStream inputStream, String expectedSha256) throws IOException {
+        ReadWriteLock sessionLock = sessionLock(uploadId);
+        Lock lock = sessionLock.readLock();
+        lock.lock();
+        try {
+            return writeChunkLocked(uploadId, index, inputStream, expectedSha256);
+        } finally {
+            lock.unlock();
+            releaseIfGone(uploadId, sessionLock);
+        }
+    }
+
+    private String writeChunkLocked(String uploadId, int index, InputStream inputStream, String expectedSha256) throws IOException {
+        Properties session = loadSession(uploadId);
+        if (session == null) {
+            return null;
+        }
+        long size = Long.parseLong(session.getProperty("size"));
+        long chunkSize = Long.parseLong(session.getProperty("chunkSize"));
+        int chunkCount = chunkCount(size, chunkSize);
+        if (index < 0 || index >= chunkCount) {
+            throw new IllegalArgumentException("Chunk index must be between 0 and " + (chunkCount - 1));
+        }
+
+        long offset = index * chunkSize;
+        long expectedLength = Math.min(chunkSize, size - offset);
+        Path sessionDir = sessionDir(uploadId);
+        MessageDigest digest = FileStorageService.newSha256();
+        long written = 0;
+
+        // The range is about to change, so a re-sent chunk that fails below
+        // counts as missing instead of vouching for the overwritten bytes
+        Path marker = sessionDir.resolve(CHUNKS_DIR).resolve(String.valueOf(index));
+        Files.deleteIfExists(marker);
+
+        try (ReadableByteChannel source = Channels.newChannel(inputStream);
+             FileChannel target = FileChannel.open(sessionDir.resolve(DATA_FILE), StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(COPY_BUFFER_SIZE);
+            while (source.read(buffer) != -1) {
+                buffer.flip();
+                if (written + buffer.remaining() > expectedLength) {
+                    throw new IllegalArgumentException("Chunk " + index + " must be " + expectedLength + " bytes");
+                }
+                buffer.mark();
+                digest.update(buffer);
+                buffer.reset();
+                while (buffer.hasRemaining()) {
+                    written += target.write(buffer, offset + written);
+                }
+                buffer.clear();
+            }
+            if (written != expectedLength) {
+                throw new IllegalArgumentException("Chunk " + index + " must be " + expectedLength
+                        + " bytes, received " + written);
+            }
+            // The marker below claims the bytes are durable
+            target.force(false);
+        }
+
+        String sha256 = FileStorageService.toHex(digest.digest());
+        if (expectedSha256 != null && !expectedSha256.equalsIgnoreCase(sha256)) {
+            throw new IllegalArgumentException("Checksum mismatch for chunk " + index);
+        }
+
+        Path tmpMarker = marker.resolveSibling(index + "." + UUID.randomUUID() + ".tmp");
+        Files.write(tmpMarker, sha256.getBytes(StandardCharsets.US_ASCII));
+        Files.move(tmpMarker, marker, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        Files.setLastModifiedTime(sessionDir.resolve(SESSION_FILE), FileTime.fromMillis(System.currentTimeMillis()));
+        return sha256;
+    }
+
+    /**
+     * Current state of a session, or null when it does not exist
+     */
+    public ChunkedUploadStatus status(String uploadId) throws IOException {
+        Properties session = loadSession(uploadId);
+        if (session == null) {
+            return null;
+        }
+        long size = Long.parseLong(session.getProperty("size"));
+        long chunkSize = Long.parseLong(session.getProperty("chunkSize"));
+        int chunkCount = chunkCount(size, chunkSize);
+
+        BitSet received = receivedChunks(uploadId, chunkCount);
+        List<long[]> ranges = new ArrayList<>();
+        int start = received.nextSetBit(0);
+        while (start >= 0) {
+            int end = received.nextClearBit(start);
+            ranges.add(new long[]{start, end - 1});
+            start = received.nextSetBit(end);
+        }
+
+        return new ChunkedUploadStatus(uploadId, session.getProperty("originalName"), size, chunkSize,
+                chunkCount, ranges, received.cardinality());
+    }
+
+    /**
+     * Hand a fully received upload over to the file store and drop the session.
+     * Every chunk is checked against the SHA-256 it was received with; a damaged
+     * chunk is marked missing again. Returns null when the session does not exist.
+     */
+    public StoredFile complete(String uploadId) throws IOException {
+        ReadWriteLock sessionLock = sessionLock(uploadId);
+        Lock lock = sessionLock.writeLock();
+        lock.lock();
+        try {
+            ChunkedUploadStatus status = status(uploadId);
+            if (status == null) {
+                return null;
+            }
+            if (!status.isComplete()) {
+                throw new IllegalStateException("Missing " + (status.getChunkCount() - status.getReceivedChunks())
+                        + " of " + status.getChunkCount() + " chunks");
+            }
+            verifyChunks(uploadId, status);
+
+            String originalName = status.getOriginalName().isEmpty() ? null : status.getOriginalName();
+            StoredFile stored = fileStorageService.adopt(sessionDir(uploadId).resolve(DATA_FILE), originalName);
+            deleteRecursively(sessionDir(uploadId));
+            return stored;
+        } finally {
+            lock.unlock();
+            releaseIfGone(uploadId, sessionLock);
+        }
+    }
+
+    /**
+     * Abort a session and remove everything received so far
+     */
+    public boolean abort(String uploadId) throws IOException {
+        ReadWriteLock sessionLock = sessionLock(uploadId);
+        Lock lock = sessionLock.writeLock();
+        lock.lock();
+        try {
+            if (loadSession(uploadId) == null) {
+                return false;
+            }
+            deleteRecursively(sessionDir(uploadId));
+            return true;
+        } finally {
+            lock.unlock();
+            releaseIfGone(uploadId, sessionLock);
+        }
+    }
+
+    private void verifyChunks(String uploadId, ChunkedUploadStatus status) throws IOException {
+        Path sessionDir = sessionDir(uploadId);
+        List<Integer> damaged = new ArrayList<>();
+        try (FileChannel data = FileChannel.open(sessionDir.resolve(DATA_FILE), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(COPY_BUFFER_SIZE);
+            for (int index = 0; index < status.getChunkCount(); index++) {
+                Path marker = sessionDir.resolve(CHUNKS_DIR).resolve(String.valueOf(index));
+                String expected = new String(Files.readAllBytes(marker), StandardCharsets.US_ASCII).trim();
+                long offset = index * status.getChunkSize();
+                long remaining = Math.min(status.getChunkSize(), status.getSize() - offset);
+                MessageDigest digest = FileStorageService.newSha256();
+                while (remaining > 0) {
+                    buffer.clear();
+                    buffer.limit((int) Math.min(buffer.capacity(), remaining));
+                    int read = data.read(buffer, offset);
+                    if (read < 0) {
+                        break;
+                    }
+                    buffer.flip();
+                    digest.update(buffer);
+                    offset += read;
+                    remaining -= read;
+                }
+                if (remaining > 0 || !expected.equalsIgnoreCase(FileStorageService.toHex(digest.digest()))) {
+                    Files.deleteIfExists(marker);
+                    damaged.add(index);
+                }
+            }
+        }
+        if (!damaged.isEmpty()) {
+            throw new IllegalStateException("Chunks " + damaged + " are damaged, send them again");
+        }
+    }
+
+    /**
+     * Garbage-collect sessions that have not received a chunk within the TTL
+     */
+    @Scheduled(fixedDelayString = "${file.upload.chunked-cleanup-interval:PT1H}")
+    public void removeAbandonedSessions() {
+        Path sessionsDir = fileStorageService.load(SESSIONS_DIR);
+        if (!Files.isDirectory(sessionsDir)) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - fileUploadProperties.getChunkedSessionTtl().toMillis();
+        try (DirectoryStream<Path> sessions = Files.newDirectoryStream(sessionsDir)) {
+            for (Path sessionDir : sessions) {
+                Path sessionFile = sessionDir.resolve(SESSION_FILE);
+                Path activity = Files.exists(sessionFile) ? sessionFile : sessionDir;
+                if (Files.getLastModifiedTime(activity).toMillis() < cutoff) {
+                    logger.info("Removing abandoned chunked upload {}", sessionDir.getFileName());
+                    String uploadId = sessionDir.getFileName().toString();
+                    ReadWriteLock sessionLock = sessionLock(uploadId);
+                    Lock lock = sessionLock.writeLock();
+                    lock.lock();
+                    try {
+                        deleteRecursively(sessionDir);
+                                } finally {
+                        lock.unlock();
+                        releaseIfGone(uploadId, sessionLock);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to clean up chunked upload sessions", e);
+        }
+    }
+
+    private BitSet receivedChunks(String uploadId, int chunkCount) throws IOException {
+        BitSet received = new BitSet(chunkCount);
+        try (DirectoryStream<Path> markers = Files.newDirectoryStream(sessionDir(uploadId).resolve(CHUNKS_DIR))) {
+            for (Path marker : markers) {
+                try {
+                    int index = Integer.parseInt(marker.getFileName().toString());
+                    if (index >= 0 && index < chunkCount) {
+                        received.set(index);
+                    }
+                } catch (NumberFormatException e) {
+                    // temporary marker being written
+                }
+            }
+        }
+        return received;
+    }
+
+    private Properties loadSession(String uploadId) throws IOException {
+        if (!isSessionId(uploadId)) {
+            return null;
+        }
+        Path sessionFile = sessionDir(uploadId).resolve(SESSION_FILE);
+        if (!Files.exists(sessionFile)) {
+            return null;
+        }
+        Properties session = new Properties();
+        try (Reader reader = Files.newBufferedReader(sessionFile, StandardCharsets.UTF_8)) {
+            session.load(reader);
+        }
+        return session;
+    }
+
+    private ReadWriteLock sessionLock(String uploadId) {
+        return sessionLocks.computeIfAbsent(String.valueOf(uploadId), id -> new ReentrantReadWriteLock());
+    }
+
+    /**
+     * Forget the lock of a session that no longer exists (or never did)
+     */
+    private void releaseIfGone(String uploadId, ReadWriteLock sessionLock) {
+        if (!isSessionId(uploadId) || !Files.exists(sessionDir(uploadId).resolve(SESSION_FILE))) {
+            sessionLocks.remove(String.valueOf(uploadId), sessionLock);
+        }
+    }
+
+    private static boolean isSessionId(String uploadId) {
+        return uploadId != null && uploadId.matches("[0-9a-f-]{36}");
+    }
+
+    private Path sessionDir(String uploadId) {
+        return fileStorageService.load(SESSIONS_DIR).resolve(uploadId);
+    }
+
+    private static int chunkCount(long size, long chunkSize) {
+        return (int) ((size + chunkSize - 1) / chunkSize);
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    logger.warn("Failed to delete {}", path, e);
+                }
+            });
+        }
+    }
+}
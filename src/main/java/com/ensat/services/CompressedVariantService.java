@@ -0,0 +1,243 @@
+package com.ensat.services;
+
+import com.ensat.config.FileDownloadProperties;
+import com.ensat.events.FileDeletedEvent;
+import com.ensat.events.FileStoredEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Service keeping precompressed variants of text-like uploads under
+ * .compressed/, so downloads can be sent with a Content-Encoding without
+ * compressing on every request. Gzip variants are produced at store time or
+ * on first read; a brotli (.br) variant is served when one has been placed
+ * there by an external tool, as the JDK has no brotli encoder. A gzip variant
+ * carries the modification time of the original it was made from, so a
+ * replaced original is detected and compressed again.
+ */
+@Service
+public class CompressedVariantService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompressedVariantService.class);
+
+    private static final String COMPRESSED_DIR = ".compressed";
+    private static final String GZIP = "gzip";
+    private static final String BROTLI = "br";
+
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private FileDownloadProperties fileDownloadProperties;
+
+    @Autowired
+    @Qualifier("precompressExecutor")
+    private ThreadPoolTaskExecutor precompressExecutor;
+
+    /**
+     * A stored representation of a file and its Content-Encoding
+     */
+    public static class Variant {
+
+        private final Path path;
+        private final String encoding;
+
+        Variant(Path path, String encoding) {
+            this.path = path;
+            this.encoding = encoding;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public String getEncoding() {
+            return encoding;
+        }
+    }
+
+    @EventListener
+    public void onFileStored(FileStoredEvent event) {
+        if (fileDownloadProperties.isPrecompress() && fileDownloadProperties.isPrecompressOnStore()) {
+            String filename = event.getStoredFile().getFilename();
+            if (isCompressible(filename)) {
+                schedule(filename);
+            }
+        }
+    }
+
+    @EventListener
+    public void onFileDeleted(FileDeletedEvent event) {
+        try {
+            Files.deleteIfExists(variantPath(event.getFilename(), GZIP));
+            Files.deleteIfExists(variantPath(event.getFilename(), BROTLI));
+        } catch (IOException e) {
+            logger.warn("Failed to delete compressed variants of {}", event.getFilename(), e);
+        }
+    }
+
+    public static boolean isCompressible(String filename) {
+        String contentType = FileStorageService.determineContentType(filename);
+        return contentType.startsWith("text/")
+                || contentType.equals("application/javascript")
+                || contentType.equals("application/json")
+                || contentType.equals("application/xml");
+    }
+
+    /**
+     * Pick the best stored variant the client accepts, or the identity one.
+     * A missing gzip variant is queued for creation and identity served meanwhile.
+     */
+    public Variant negotiate(String filename, Path original, String acceptEncoding) throws IOException {
+        Variant identity = new Variant(original, null);
+        if (!fileDownloadProperties.isPrecompress() || !isCompressible(filename)
+                || Files.size(original) < fileDownloadProperties.getPrecompressMinSize()) {
+            return identity;
+        }
+
+        if (acceptsEncoding(acceptEncoding, BROTLI)) {
+            Path brotli = variantPath(filename, BROTLI);
+            if (isUsable(brotli, original)) {
+                return new Variant(brotli, BROTLI);
+            }
+        }
+        if (acceptsEncoding(acceptEncoding, GZIP)) {
+            Path gzip = variantPath(filename, GZIP);
+            if (isCurrent(gzip, original)) {
+                if (Files.size(gzip) < Files.size(original)) {
+                    return new Variant(gzip, GZIP);
+                }
+            } else {
+                schedule(filename);
+            }
+        }
+        return identity;
+    }
+
+    /**
+     * An externally produced variant is used when it is newer than the
+     * original and actually smaller
+     */
+    private static boolean isUsable(Path variant, Path original) throws IOException {
+        return Files.isRegularFile(variant)
+                && Files.getLastModifiedTime(variant).compareTo(Files.getLastModifiedTime(original)) >= 0
+                && Files.size(variant) < Files.size(original);
+    }
+
+    /**
+     * Whether the gzip variant was made from the original as it is now. A
+     * newer-than check would accept a variant of the previous content when a
+     * replacement keeps an older modification time.
+     */
+    static boolean isCurrent(Path gzip, Path original) throws IOException {
+        return Files.isRegularFile(gzip)
+                && Files.getLastModifiedTime(gzip).equals(Files.getLastModifiedTime(original));
+    }
+
+    /**
+     * Whether an Accept-Encoding header allows the coding, honouring q=0 and *
+     */
+    static boolean acceptsEncoding(String header, String encoding) {
+        if (header == null) {
+            return false;
+        }
+        Boolean wildcard = null;
+        for (String part : header.split(",")) {
+            String[] params = part.trim().split(";");
+            String coding = params[0].trim().toLowerCase(Locale.ROOT);
+            boolean acceptable = true;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        acceptable = Double.parseDouble(param.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        acceptable = false;
+                    }
+                }
+            }
+            if (coding.equals(encoding)) {
+                return acceptable;
+            }
+            if (coding.equals("*")) {
+                wildcard = acceptable;
+            }
+        }
+        return wildcard != null && wildcard;
+    }
+
+    private void schedule(String filename) {
+        if (!pending.add(filename)) {
+            return;
+        }
+        try {
+            precompressExecutor.execute(() -> {
+                try {
+                    compress(filename);
+                } catch (IOException e) {
+                    logger.warn("Failed to precompress {}", filename, e);
+                } finally {
+                    pending.remove(filename);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            // Busy: identity is served and a later request queues it again
+            pending.remove(filename);
+        }
+    }
+
+    private void compress(String filename) throws IOException {
+        Path original = fileStorageService.load(filename);
+        if (!Files.isRegularFile(original)) {
+            return;
+        }
+        Path gzip = variantPath(filename, GZIP);
+        if (isCurrent(gzip, original)) {
+            return;
+        }
+        // Read first: if the original changes while it is copied, the variant stays outdated
+        FileTime originalModified = Files.getLastModifiedTime(original);
+        Files.createDirectories(gzip.getParent());
+        Path tmp = gzip.resolveSibling("." + UUID.randomUUID() + ".tmp");
+        try {
+            // Compressed once and served many times, so use the best ratio
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp), 64 * 1024) {
+                {
+                    def.setLevel(Deflater.BEST_COMPRESSION);
+                }
+            }) {
+                Files.copy(original, out);
+            }
+            Files.setLastModifiedTime(tmp, originalModified);
+            Files.move(tmp, gzip, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private Path variantPath(String filename, String encoding) {
+        String suffix = GZIP.equals(encoding) ? ".gz" : ".br";
+        return fileStorageService.load(COMPRESSED_DIR).resolve(filename + suffix);
+    }
+}
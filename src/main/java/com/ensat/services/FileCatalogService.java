@@ -0,0 +1,430 @@
+package com.ensat.services;
+
+import com.ensat.config.FileUploadProperties;
+import com.ensat.dto.FileMetadata;
+import com.ensat.dto.StoredFile;
+import com.ensat.events.FileDeletedEvent;
+import com.ensat.events.FileStoredEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * In-memory catalog of stored files. It is kept up to date from store/delete
+ * events, reconciled against the upload directory in the background at startup
+ * and on WatchService overflow, follows changes made outside the app through
+ * the WatchService, and is snapshotted to disk so restarts do not need a scan
+ * before the first listing. In the sharded layout every shard directory is
+ * watched, including ones created later. Entries are kept in one ordered index
+ * per sort key, so an unfiltered page is read without sorting the catalog.
+ */
+@Service
+public class FileCatalogService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileCatalogService.class);
+
+    private static final String CATALOG_FILE = ".catalog.json";
+    private static final int SHARD_DEPTH = 2;
+
+    private final Map<String, FileMetadata> entries = new ConcurrentHashMap<>();
+    // Indexed entries are never modified; a change replaces the entry
+    private final NavigableSet<FileMetadata> byName = new ConcurrentSkipListSet<>(comparator("name"));
+    private final NavigableSet<FileMetadata> bySize = new ConcurrentSkipListSet<>(comparator("size"));
+    private final NavigableSet<FileMetadata> byCreatedAt = new ConcurrentSkipListSet<>(comparator("createdAt"));
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    private volatile WatchService watchService;
+    private volatile Path watchRoot;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private FileUploadProperties fileUploadProperties;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    @Qualifier("fileIoExecutor")
+    private ThreadPoolTaskExecutor fileIoExecutor;
+
+    @PostConstruct
+    public void start() throws IOException {
+        fileStorageService.init();
+        loadSnapshot();
+        fileIoExecutor.execute(this::reconcile);
+        if (fileUploadProperties.isCatalogWatch()) {
+            startWatcher();
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        WatchService watcher = watchService;
+        watchService = null;
+        if (watcher != null) {
+            watcher.close();
+        }
+        flush();
+    }
+
+    @EventListener
+    public void onFileStored(FileStoredEvent event) {
+        StoredFile stored = event.getStoredFile();
+        put(new FileMetadata(stored.getFilename(), stored.getOriginalName(), stored.getSize(),
+                FileStorageService.determineContentType(stored.getFilename()), stored.getSha256(),
+                System.currentTimeMillis()));
+    }
+
+    @EventListener
+    public void onFileDeleted(FileDeletedEvent event) {
+        remove(event.getFilename());
+    }
+
+    /**
+     * Metadata of a stored file, or null when it is not in the catalog
+     */
+    public FileMetadata get(String filename) {
+        return entries.get(filename);
+    }
+
+    public int count() {
+        return entries.size();
+    }
+
+    /**
+     * One page of catalog entries sorted by name, size or createdAt (unknown
+     * keys sort by name), optionally filtered by a case-insensitive substring of
+     * the stored or original name and by a content type prefix. Unfiltered pages
+     * only walk the index up to the page; filtered ones walk the whole index to
+     * count the matches, since a substring has no index to look it up in.
+     */
+    public Page<FileMetadata> list(String query, String contentType, String sort, boolean descending,
+                                   int page, int size) {
+        PageRequest pageRequest = PageRequest.of(page, size);
+        NavigableSet<FileMetadata> index = index(sort);
+        if (descending) {
+            index = index.descendingSet();
+        }
+        boolean filtered = (query != null && !query.isEmpty()) || (contentType != null && !contentType.isEmpty());
+
+        if (!filtered) {
+            List<FileMetadata> content = index.stream()
+                    .skip(pageRequest.getOffset())
+                    .limit(size)
+                    .collect(Collectors.toList());
+            return new PageImpl<>(content, pageRequest, entries.size());
+        }
+
+        String needle = query != null ? query.toLowerCase(Locale.ROOT) : null;
+        List<FileMetadata> content = new ArrayList<>();
+        long matches = 0;
+        for (FileMetadata entry : index) {
+            if (matches(entry, needle, contentType)) {
+                if (matches >= pageRequest.getOffset() && content.size() < size) {
+                    content.add(entry);
+                }
+                matches++;
+            }
+        }
+        return new PageImpl<>(content, pageRequest, matches);
+    }
+
+    /**
+     * Bring the catalog in line with the upload directory: add files it does not
+     * know, drop entries whose file is gone and refresh sizes
+     */
+    public void reconcile() {
+        long scanStart = System.currentTimeMillis();
+        Set<String> seen = new HashSet<>();
+        try {
+            for (String filename : fileStorageService.listAllFiles()) {
+                seen.add(filename);
+                upsertFromDisk(filename);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to reconcile the file catalog", e);
+            return;
+        }
+        for (FileMetadata entry : entries.values()) {
+            // Entries added while the scan ran are not in its result
+            if (!seen.contains(entry.getName()) && entry.getCreatedAt() < scanStart
+                    && !fileStorageService.exists(entry.getName())) {
+                remove(entry.getName());
+            }
+        }
+        logger.info("File catalog reconciled, {} files", entries.size());
+    }
+
+    /**
+     * Persist the catalog if it changed since the last snapshot
+     */
+    @Scheduled(fixedDelayString = "${file.upload.catalog-flush-interval:PT30S}")
+    public void flush() {
+        if (!dirty.compareAndSet(true, false)) {
+            return;
+        }
+        Path snapshot = fileStorageService.load(CATALOG_FILE);
+        Path tmpSnapshot = snapshot.resolveSibling(CATALOG_FILE + ".tmp");
+        try {
+            objectMapper.writeValue(tmpSnapshot.toFile(), entries.values());
+            Files.move(tmpSnapshot, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            dirty.set(true);
+            logger.warn("Failed to write the file catalog snapshot", e);
+        }
+    }
+
+    private void loadSnapshot() {
+        Path snapshot = fileStorageService.load(CATALOG_FILE);
+        if (!Files.exists(snapshot)) {
+            return;
+        }
+        try {
+            for (FileMetadata entry : objectMapper.readValue(snapshot.toFile(), FileMetadata[].class)) {
+                put(entry);
+            }
+            dirty.set(false);
+            logger.info("Loaded file catalog snapshot, {} files", entries.size());
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable file catalog snapshot", e);
+        }
+    }
+
+    private void upsertFromDisk(String filename) {
+        Path path = fileStorageService.load(filename);
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                return;
+            }
+            FileMetadata existing = entries.get(filename);
+            if (existing != null) {
+                if (existing.getSize() != attributes.size()) {
+                    put(new FileMetadata(existing.getName(), existing.getOriginalName(), attributes.size(),
+                            existing.getContentType(), existing.getSha256(), existing.getCreatedAt()));
+                }
+                return;
+            }
+            put(new FileMetadata(filename, null, attributes.size(),
+                    FileStorageService.determineContentType(filename), null,
+                    attributes.creationTime().toMillis()));
+        } catch (IOException e) {
+            // Gone between listing and reading its attributes
+            remove(filename);
+        }
+    }
+
+    // Writers are serialized so the indexes never keep an entry that was replaced
+    private synchronized void put(FileMetadata entry) {
+        FileMetadata previous = entries.put(entry.getName(), entry);
+        if (previous != null) {
+            unindex(previous);
+        }
+        byName.add(entry);
+        bySize.add(entry);
+        byCreatedAt.add(entry);
+        dirty.set(true);
+    }
+
+    private synchronized void remove(String filename) {
+        FileMetadata previous = entries.remove(filename);
+        if (previous != null) {
+            unindex(previous);
+            dirty.set(true);
+        }
+    }
+
+    private void unindex(FileMetadata entry) {
+        byName.remove(entry);
+        bySize.remove(entry);
+        byCreatedAt.remove(entry);
+    }
+
+    private NavigableSet<FileMetadata> index(String sort) {
+        if ("size".equals(sort)) {
+            return bySize;
+        } else if ("createdAt".equals(sort)) {
+            return byCreatedAt;
+        }
+        return byName;
+    }
+
+    private static boolean matches(FileMetadata entry, String needle, String contentType) {
+        if (needle != null && !needle.isEmpty()
+                && !entry.getName().toLowerCase(Locale.ROOT).contains(needle)
+                && (entry.getOriginalName() == null
+                    || !entry.getOriginalName().toLowerCase(Locale.ROOT).contains(needle))) {
+            return false;
+        }
+        return contentType == null || contentType.isEmpty() || entry.getContentType().startsWith(contentType);
+    }
+
+    private static Comparator<FileMetadata> comparator(String sort) {
+        Comparator<FileMetadata> comparator;
+        if ("size".equals(sort)) {
+            comparator = Comparator.comparingLong(FileMetadata::getSize);
+        } else if ("createdAt".equals(sort)) {
+            comparator = Comparator.comparingLong(FileMetadata::getCreatedAt);
+        } else {
+            comparator = Comparator.comparing(FileMetadata::getName);
+        }
+        return comparator.thenComparing(FileMetadata::getName);
+    }
+
+    private void startWatcher() throws IOException {
+        Path uploadDir = Paths.get(fileStorageService.getUploadPath());
+        watchRoot = uploadDir;
+        watchService = uploadDir.getFileSystem().newWatchService();
+        register(uploadDir);
+        if (fileUploadProperties.isSharded()) {
+            watchShards(uploadDir, false);
+        }
+
+        Thread watcher = new Thread(this::watch, "file-catalog-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void register(Path dir) throws IOException {
+        dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    /**
+     * Watch the shard directories under dir. For a directory that has just
+     * appeared, also pick up the files written to it before it was watched.
+     */
+    private void watchShards(Path dir, boolean scan) throws IOException {
+        registerTree(dir);
+        if (scan) {
+            for (Path path : shardTree(dir)) {
+                if (Files.isRegularFile(path) && !path.getFileName().toString().startsWith(".")) {
+                    upsertFromDisk(path.getFileName().toString());
+                }
+            }
+        }
+    }
+
+    /**
+     * Register a directory before listing it, so a subdirectory or file created
+     * meanwhile is either listed or reported by an event
+     */
+    private void registerTree(Path dir) throws IOException {
+        if (!dir.equals(watchRoot)) {
+            register(dir);
+        }
+        if (depth(dir) >= SHARD_DEPTH) {
+            return;
+        }
+        try (Stream<Path> children = Files.list(dir)) {
+            for (Path child : children.collect(Collectors.toList())) {
+                if (Files.isDirectory(child) && !child.getFileName().toString().startsWith(".")) {
+                    registerTree(child);
+                }
+            }
+        }
+    }
+
+    /**
+     * Visible entries under dir, down to the files in the leaf shard directories
+     */
+    private List<Path> shardTree(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir, SHARD_DEPTH + 1 - depth(dir))) {
+            return paths.filter(path -> !path.equals(watchRoot))
+                    .filter(path -> !watchRoot.relativize(path).toString().startsWith("."))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private int depth(Path dir) {
+        return dir.equals(watchRoot) ? 0 : watchRoot.relativize(dir).getNameCount();
+    }
+
+    private void watch() {
+        WatchService watcher = watchService;
+        while (watcher != null) {
+            WatchKey key;
+            try {
+                key = watcher.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path dir = (Path) key.watchable();
+            int depth = depth(dir);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    fileIoExecutor.execute(this::reconcile);
+                    continue;
+                }
+                String filename = event.context().toString();
+                if (filename.startsWith(".")) {
+                    continue;
+                }
+                if (fileUploadProperties.isSharded() && depth < SHARD_DEPTH
+                        && event.kind() == StandardWatchEventKinds.ENTRY_CREATE
+                        && Files.isDirectory(dir.resolve(filename))) {
+                    try {
+                        watchShards(dir.resolve(filename), true);
+                    } catch (IOException | ClosedWatchServiceException e) {
+                        logger.warn("Failed to watch shard directory {}", dir.resolve(filename), e);
+                    }
+                    continue;
+                }
+                // Files sit in the upload directory itself or in leaf shard directories
+                if (depth != 0 && depth != SHARD_DEPTH) {
+                    continue;
+                }
+                if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                    if (!fileStorageService.exists(filename)) {
+                        remove(filename);
+                    }
+                } else {
+                    upsertFromDisk(filename);
+                }
+            }
+            // A deleted shard directory only ends its own key
+            if (!key.reset() && dir.equals(watchRoot)) {
+                return;
+            }
+            watcher = watchService;
+        }
+    }
+}
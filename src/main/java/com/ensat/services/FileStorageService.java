@@ -1,17 +1,35 @@
 package com.ensat.services;
 
+import com.ensat.config.FileUploadProperties;
+import com.ensat.dto.StoredFile;
+import com.ensat.events.FileDeletedEvent;
+import com.ensat.events.FileStoredEvent;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service for handling file operations
@@ -19,9 +37,28 @@ import java.util.stream.Collectors;
 @Service
 public class FileStorageService {
 
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final String PART_SUFFIX = ".part";
+    private static final String REFS_DIR = ".refs";
+    private static final int LOCK_STRIPES = 64;
+
+    private final Lock[] locks = new Lock[LOCK_STRIPES];
+
     @Value("${file.upload.path:/uploads}")
     private String uploadPath;
 
+    @Autowired
+    private FileUploadProperties fileUploadProperties;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    public FileStorageService() {
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
     /**
      * Initialize storage directory
      */
@@ -33,55 +70,315 @@ public class FileStorageService {
     }
 
     /**
-     * Store a file and return the stored filename
+     * Store a file and return the stored filename. The container has already
+     * spooled a multipart upload to its own temp file (above the multipart
+     * file-size threshold); it is copied from there once.
      */
     public String store(MultipartFile file) throws IOException {
         if (file.isEmpty()) {
             throw new IOException("Cannot store empty file");
         }
 
-        // Initialize directory if needed
+        try (InputStream inputStream = file.getInputStream()) {
+            return store(inputStream, file.getOriginalFilename()).getFilename();
+        }
+    }
+
+    /**
+     * Store a stream, e.g. a raw request body from the /files/api/stream
+     * endpoints, which never goes through a multipart temp file. The bytes are
+     * written through a file channel into a hidden part file next to the final
+     * location while size and SHA-256 are computed, then atomically renamed.
+     * In content-addressed mode the final name is the digest, and a blob that is
+     * already stored only gains a reference.
+     */
+    public StoredFile store(InputStream inputStream, String originalFilename) throws IOException {
+        init();
+
+        Path partPath = load("." + UUID.randomUUID().toString() + PART_SUFFIX);
+
+        MessageDigest digest = newSha256();
+        long size = 0;
+        long maxSize = fileUploadProperties.getMaxStreamSize();
+
+        try (ReadableByteChannel source = Channels.newChannel(inputStream);
+             FileChannel target = FileChannel.open(partPath,
+                     StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(COPY_BUFFER_SIZE);
+            while (source.read(buffer) != -1) {
+                buffer.flip();
+                size += buffer.remaining();
+                if (size > maxSize) {
+                    throw new IOException("File exceeds the maximum size of " + maxSize + " bytes");
+                }
+                buffer.mark();
+                digest.update(buffer);
+                buffer.reset();
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+                buffer.clear();
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(partPath);
+            throw e;
+        }
+
+        if (size == 0) {
+            Files.deleteIfExists(partPath);
+            throw new IOException("Cannot store empty file");
+        }
+
+        return commit(partPath, originalFilename, size, toHex(digest.digest()));
+    }
+
+    /**
+     * Take over a fully written file that lives inside the upload directory (e.g.
+     * an assembled chunked upload), hashing it and moving it to its final name
+     */
+    public StoredFile adopt(Path file, String originalFilename) throws IOException {
         init();
 
-        // Generate unique filename
-        String originalFilename = file.getOriginalFilename();
-        String fileExtension = "";
-        if (originalFilename != null && originalFilename.contains(".")) {
-            fileExtension = originalFilename.substring(originalFilename.lastIndexOf("."));
+        MessageDigest digest = newSha256();
+        long size;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            size = channel.size();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(COPY_BUFFER_SIZE);
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        if (size == 0) {
+            throw new IOException("Cannot store empty file");
+        }
+
+        Path partPath = load("." + UUID.randomUUID().toString() + PART_SUFFIX);
+        Files.move(file, partPath, StandardCopyOption.ATOMIC_MOVE);
+        return commit(partPath, originalFilename, size, toHex(digest.digest()));
+    }
+
+    /**
+     * Move a completed part file to its final name
+     */
+    private StoredFile commit(Path partPath, String originalFilename, long size, String sha256) throws IOException {
+        String extension = extensionOf(originalFilename);
+        if (!fileUploadProperties.isContentAddressed()) {
+            String uniqueFilename = UUID.randomUUID().toString() + extension;
+            Files.move(partPath, targetPath(uniqueFilename), StandardCopyOption.ATOMIC_MOVE);
+            StoredFile stored = new StoredFile(uniqueFilename, originalFilename, size, sha256);
+            eventPublisher.publishEvent(new FileStoredEvent(stored));
+            return stored;
         }
-        String uniqueFilename = UUID.randomUUID().toString() + fileExtension;
 
-        // Save file
-        Path filePath = Paths.get(uploadPath).resolve(uniqueFilename);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+        String blobName = sha256 + extension;
+        Lock lock = lockFor(blobName);
+        lock.lock();
+        try {
+            Path blobPath = load(blobName);
+            boolean deduplicated = Files.exists(blobPath);
+            if (deduplicated) {
+                Files.delete(partPath);
+                writeReferenceCount(blobName, readReferenceCount(blobName) + 1);
+            } else {
+                Files.move(partPath, targetPath(blobName), StandardCopyOption.ATOMIC_MOVE);
+                writeReferenceCount(blobName, 1);
+            }
+            StoredFile stored = new StoredFile(blobName, originalFilename, size, sha256);
+            stored.setDeduplicated(deduplicated);
+            if (!deduplicated) {
+                eventPublisher.publishEvent(new FileStoredEvent(stored));
+            }
+            return stored;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Name of the stored blob with this digest and the extension of the given
+     * original filename, or null when the server does not hold it
+     */
+    public String findByDigest(String sha256, String originalFilename) {
+        if (!isSha256(sha256)) {
+            return null;
+        }
+        String blobName = sha256.toLowerCase() + extensionOf(originalFilename);
+        return Files.isRegularFile(load(blobName)) ? blobName : null;
+    }
 
-        return uniqueFilename;
+    /**
+     * Add a reference to an already stored blob instead of uploading its bytes again
+     */
+    public StoredFile addReference(String sha256, String originalFilename) throws IOException {
+        String blobName = findByDigest(sha256, originalFilename);
+        if (blobName == null) {
+            return null;
+        }
+        Lock lock = lockFor(blobName);
+        lock.lock();
+        try {
+            Path blobPath = load(blobName);
+            if (!Files.exists(blobPath)) {
+                return null;
+            }
+            writeReferenceCount(blobName, readReferenceCount(blobName) + 1);
+            StoredFile stored = new StoredFile(blobName, originalFilename, Files.size(blobPath), sha256.toLowerCase());
+            stored.setDeduplicated(true);
+            return stored;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
-     * Load a file as Path
+     * Load a file as Path. In the sharded layout a file that has not been
+     * migrated yet still resolves to its old flat location.
      */
     public Path load(String filename) {
-        return Paths.get(uploadPath).resolve(filename);
+        Path flatPath = Paths.get(uploadPath).resolve(filename);
+        if (!fileUploadProperties.isSharded() || filename.isEmpty() || filename.startsWith(".")) {
+            return flatPath;
+        }
+        Path shardedPath = shardedPath(filename);
+        if (!Files.exists(shardedPath) && Files.exists(flatPath)) {
+            return flatPath;
+        }
+        return shardedPath;
+    }
+
+    /**
+     * Path a new file with this name is written to, creating its shard directory
+     */
+    private Path targetPath(String filename) throws IOException {
+        if (!fileUploadProperties.isSharded()) {
+            return Paths.get(uploadPath).resolve(filename);
+        }
+        Path shardedPath = shardedPath(filename);
+        Files.createDirectories(shardedPath.getParent());
+        return shardedPath;
+    }
+
+    /**
+     * Two levels of hex prefix directories, e.g. ab/cd/abcd1234-....png. Names
+     * that do not start with hex (UUIDs and digests do) are sharded by their hash.
+     */
+    Path shardedPath(String filename) {
+        String prefix = filename.length() >= 4 && filename.substring(0, 4).matches("[0-9a-fA-F]{4}")
+                ? filename.substring(0, 4).toLowerCase()
+                : toHex(newSha256().digest(filename.getBytes(StandardCharsets.UTF_8))).substring(0, 4);
+        return Paths.get(uploadPath).resolve(prefix.substring(0, 2)).resolve(prefix.substring(2, 4)).resolve(filename);
+    }
+
+    /**
+     * Move one file from the flat directory into its shard. Safe to run while
+     * the application serves traffic: reads resolve either location and the
+     * move is atomic under the file's lock.
+     */
+    public boolean migrateToShard(String filename) throws IOException {
+        Lock lock = lockFor(filename);
+        lock.lock();
+        try {
+            Path flatPath = Paths.get(uploadPath).resolve(filename);
+            Path shardedPath = shardedPath(filename);
+            if (!Files.isRegularFile(flatPath) || Files.exists(shardedPath)) {
+                return false;
+            }
+            Files.createDirectories(shardedPath.getParent());
+            Files.move(flatPath, shardedPath, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Names of the regular files still sitting directly in the upload directory
+     */
+    public List<String> listFlatFiles() throws IOException {
+        init();
+        try (Stream<Path> paths = Files.list(Paths.get(uploadPath))) {
+            return paths.filter(Files::isRegularFile)
+                    .map(path -> path.getFileName().toString())
+                    .filter(name -> !name.startsWith("."))
+                    .collect(Collectors.toList());
+        }
     }
 
     /**
      * Check if file exists
      */
+    /**
+     * Whether a name can refer to a stored file. Hidden names belong to internal
+     * state kept in the upload directory (catalog, chunked sessions, variants)
+     * and are never served.
+     */
+    public static boolean isStoredName(String filename) {
+        return filename != null && !filename.isEmpty() && !filename.startsWith(".")
+                && filename.indexOf('/') < 0 && filename.indexOf('\\') < 0;
+    }
+
     public boolean exists(String filename) {
         return Files.exists(load(filename));
     }
 
     /**
-     * Delete a file
+     * Delete a file. A content-addressed blob is only removed when its last
+     * reference goes.
      */
     public boolean delete(String filename) throws IOException {
-        Path filePath = load(filename);
-        if (Files.exists(filePath)) {
+        Lock lock = lockFor(filename);
+        lock.lock();
+        try {
+            Path filePath = load(filename);
+            if (!Files.exists(filePath)) {
+                return false;
+            }
+            long references = readReferenceCount(filename);
+            if (references > 1) {
+                writeReferenceCount(filename, references - 1);
+                return true;
+            }
             Files.delete(filePath);
+            Files.deleteIfExists(referencePath(filename));
+            eventPublisher.publishEvent(new FileDeletedEvent(filename));
             return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reference count of a stored file; files without a count have one reference
+     */
+    long readReferenceCount(String filename) throws IOException {
+        Path refPath = referencePath(filename);
+        if (!Files.exists(refPath)) {
+            return 1;
         }
-        return false;
+        String content = new String(Files.readAllBytes(refPath), StandardCharsets.US_ASCII).trim();
+        try {
+            return Long.parseLong(content);
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    private void writeReferenceCount(String filename, long count) throws IOException {
+        Path refPath = referencePath(filename);
+        Files.createDirectories(refPath.getParent());
+        Path tmpPath = refPath.resolveSibling(refPath.getFileName() + ".tmp");
+        Files.write(tmpPath, String.valueOf(count).getBytes(StandardCharsets.US_ASCII));
+        Files.move(tmpPath, refPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Path referencePath(String filename) {
+        return Paths.get(uploadPath).resolve(REFS_DIR).resolve(filename);
+    }
+
+    private Lock lockFor(String filename) {
+        return locks[(filename.hashCode() & Integer.MAX_VALUE) % locks.length];
     }
 
     /**
@@ -89,11 +386,16 @@ public class FileStorageService {
      */
     public List<String> listAllFiles() throws IOException {
         init();
-        return Files.list(Paths.get(uploadPath))
-                .filter(Files::isRegularFile)
-                .map(Path::getFileName)
-                .map(Path::toString)
-                .collect(Collectors.toList());
+        Path root = Paths.get(uploadPath);
+        // Shard directories are two levels deep; hidden entries hold internal state
+        try (Stream<Path> paths = Files.walk(root, fileUploadProperties.isSharded() ? 3 : 1)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(path -> !root.relativize(path).toString().startsWith("."))
+                    .map(Path::getFileName)
+                    .map(Path::toString)
+                    .filter(name -> !name.startsWith(".") && !name.endsWith(PART_SUFFIX))
+                    .collect(Collectors.toList());
+        }
     }
 
     /**
@@ -113,4 +415,72 @@ public class FileStorageService {
     public String getUploadPath() {
         return uploadPath;
     }
+
+    /**
+     * Extension of the original filename including the dot, or empty
+     */
+    static String extensionOf(String originalFilename) {
+        if (originalFilename == null || !originalFilename.contains(".")) {
+            return "";
+        }
+        String extension = originalFilename.substring(originalFilename.lastIndexOf("."));
+        // Never let a client-supplied name smuggle path separators into the store
+        return extension.matches("\\.[A-Za-z0-9]{1,16}") ? extension : "";
+    }
+
+    static boolean isSha256(String value) {
+        return value != null && value.matches("[0-9a-fA-F]{64}");
+    }
+
+    static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16))
+               .append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Determine content type based on file extension
+     */
+    public static String determineContentType(String filename) {
+        String extension = filename.substring(filename.lastIndexOf('.') + 1).toLowerCase();
+        
+        switch (extension) {
+            case "jpg":
+            case "jpeg":
+                return "image/jpeg";
+            case "png":
+                return "image/png";
+            case "gif":
+                return "image/gif";
+            case "pdf":
+                return "application/pdf";
+            case "txt":
+                return "text/plain";
+            case "html":
+                return "text/html";
+            case "css":
+                return "text/css";
+            case "js":
+                return "application/javascript";
+            case "json":
+                return "application/json";
+            case "xml":
+                return "application/xml";
+            case "zip":
+                return "application/zip";
+            default:
+                return "application/octet-stream";
+        }
+    }
 }
@@ -0,0 +1,439 @@
+package com.ensat.services;
+
+import com.ensat.config.FileDownloadProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Service writing stored files to HTTP responses with validators, conditional
+ * GET (304) and single and multi-range (206) support. Only single-range bodies
+ * handed to Tomcat's sendfile are zero-copy; everything else is copied through
+ * a user-space buffer by the servlet output stream. Those bodies are written
+ * with servlet non-blocking I/O, so a slow client does not hold a request thread.
+ */
+@Service
+public class FileTransferService {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final Set<AsyncTransfer> activeTransfers = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    private FileDownloadProperties fileDownloadProperties;
+
+    /**
+     * Serve a file, honouring If-None-Match, If-Modified-Since, Range and If-Range
+     */
+    public void serve(Path file, String contentType, String contentDisposition,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        serve(file, contentType, null, contentDisposition, request, response);
+    }
+
+    /**
+     * Serve a stored representation with the given Content-Encoding (null for identity).
+     * Validators and ranges then apply to the encoded bytes.
+     */
+    public void serve(Path file, String contentType, String contentEncoding, String contentDisposition,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long length = Files.size(file);
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        String etag = etagOf(length, lastModified);
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (contentEncoding != null) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, contentEncoding);
+        }
+        if (fileDownloadProperties.getCacheControl() != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, fileDownloadProperties.getCacheControl());
+        }
+
+        if (isNotModified(request, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, contentDisposition);
+        boolean head = "HEAD".equals(request.getMethod());
+
+        List<long[]> ranges = null;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && isIfRangeSatisfied(request, etag, lastModified)) {
+            ranges = parseRanges(rangeHeader, length, fileDownloadProperties.getMaxRanges());
+        }
+
+        if (ranges == null) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(contentType);
+            response.setHeader(HttpHeaders.CONTENT_LENGTH, String.valueOf(length));
+            if (!head) {
+                transfer(file, 0, length, request, response);
+            }
+        } else if (ranges.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+        } else if (ranges.size() == 1) {
+            long[] range = ranges.get(0);
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setContentType(contentType);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, contentRange(range, length));
+            response.setHeader(HttpHeaders.CONTENT_LENGTH, String.valueOf(range[1] - range[0] + 1));
+            if (!head) {
+                transfer(file, range[0], range[1] + 1, request, response);
+            }
+        } else {
+            writeMultipart(file, contentType, length, ranges, head, response);
+        }
+    }
+
+    /**
+     * Strong validator derived from size and modification time
+     */
+    static String etagOf(long length, long lastModified) {
+        return "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+    }
+
+    private boolean isNotModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return matchesEtag(ifNoneMatch, etag);
+        }
+        long ifModifiedSince = dateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return ifModifiedSince != -1 && lastModified / 1000 <= ifModifiedSince / 1000;
+    }
+
+    private boolean isIfRangeSatisfied(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.trim().startsWith("\"") || ifRange.trim().startsWith("W/")) {
+            // If-Range requires strong comparison
+            return ifRange.trim().equals(etag);
+        }
+        long date = dateHeader(request, HttpHeaders.IF_RANGE);
+        return date != -1 && lastModified / 1000 == date / 1000;
+    }
+
+    /**
+     * Weak comparison of an If-None-Match list against our ETag
+     */
+    static boolean matchesEtag(String header, String etag) {
+        for (String candidate : header.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long dateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Parse a bytes Range header into inclusive [start, end] pairs.
+     * Returns null when the header should be ignored (bad syntax, too many
+     * ranges) and an empty list when no range is satisfiable.
+     */
+    static List<long[]> parseRanges(String header, long length, int maxRanges) {
+        if (!header.startsWith("bytes=")) {
+            return null;
+        }
+        String[] specs = header.substring("bytes=".length()).split(",");
+        if (specs.length > maxRanges) {
+            return null;
+        }
+        List<long[]> ranges = new ArrayList<>();
+        for (String spec : specs) {
+            String part = spec.trim();
+            int dash = part.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            try {
+                long start;
+                long end;
+                if (dash == 0) {
+                    long suffix = Long.parseLong(part.substring(1));
+                    if (suffix <= 0) {
+                        continue;
+                    }
+                    start = Math.max(0, length - suffix);
+                    end = length - 1;
+                } else {
+                    start = Long.parseLong(part.substring(0, dash));
+                    end = dash == part.length() - 1 ? Long.MAX_VALUE : Long.parseLong(part.substring(dash + 1));
+                    if (end < start) {
+                        return null;
+                    }
+                    end = Math.min(end, length - 1);
+                }
+                if (start < length) {
+                    ranges.add(new long[]{start, end});
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return ranges;
+    }
+
+    private static String contentRange(long[] range, long length) {
+        return "bytes " + range[0] + "-" + range[1] + "/" + length;
+    }
+
+    /**
+     * Send [start, end) of the file. Bodies from the sendfile threshold up are
+     * handed to Tomcat's sendfile (zero-copy) when the connector supports it;
+     * otherwise they are copied to the response, asynchronously unless async
+     * mode is off.
+     */
+    private void transfer(Path file, long start, long end, HttpServletRequest request,
+                          HttpServletResponse response) throws IOException {
+        if (fileDownloadProperties.isSendfile()
+                && end - start >= fileDownloadProperties.getSendfileThreshold()
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end);
+            return;
+        }
+        if (fileDownloadProperties.isAsync() && request.isAsyncSupported()) {
+            transferAsync(file, start, end, request, response);
+            return;
+        }
+        OutputStream out = response.getOutputStream();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            transferTo(channel, start, end, Channels.newChannel(out));
+        }
+        out.flush();
+    }
+
+    private void transferAsync(Path file, long start, long end, HttpServletRequest request,
+                               HttpServletResponse response) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        AsyncContext asyncContext = request.startAsync(request, response);
+        asyncContext.setTimeout(fileDownloadProperties.getAsyncTimeout().toMillis());
+        AsyncTransfer transfer = new AsyncTransfer(asyncContext, channel, start, end);
+        asyncContext.addListener(transfer);
+        activeTransfers.add(transfer);
+        try {
+            response.getOutputStream().setWriteListener(transfer);
+        } catch (IOException | RuntimeException e) {
+            transfer.abort();
+            throw e;
+        }
+    }
+
+    /**
+     * Abort transfers whose client has not accepted any bytes within the write timeout
+     */
+    @Scheduled(fixedDelay = 1000)
+    public void expireStalledTransfers() {
+        long timeout = fileDownloadProperties.getWriteTimeout().toNanos();
+        long now = System.nanoTime();
+        for (AsyncTransfer transfer : activeTransfers) {
+            if (now - transfer.lastProgress > timeout) {
+                transfer.abort();
+            }
+        }
+    }
+
+    /**
+     * Asynchronous transfers in progress
+     */
+    public int activeTransferCount() {
+        return activeTransfers.size();
+    }
+
+    /**
+     * Copies a file range to the response whenever the container reports the
+     * connection writable; no thread waits on a slow client in between
+     */
+    private class AsyncTransfer implements WriteListener, AsyncListener {
+
+        private final AsyncContext asyncContext;
+        private final FileChannel channel;
+        private final long end;
+        private final byte[] buffer;
+        private long position;
+        private volatile long lastProgress = System.nanoTime();
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        AsyncTransfer(AsyncContext asyncContext, FileChannel channel, long start, long end) {
+            this.asyncContext = asyncContext;
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+            this.buffer = new byte[(int) Math.min(fileDownloadProperties.getAsyncBufferSize(), Math.max(end - start, 1))];
+        }
+
+        @Override
+        public void onWritePossible() throws IOException {
+            ServletOutputStream out = asyncContext.getResponse().getOutputStream();
+            ByteBuffer view = ByteBuffer.wrap(buffer);
+            while (out.isReady()) {
+                if (position >= end) {
+                    finish();
+                    return;
+                }
+                view.clear();
+                view.limit((int) Math.min(buffer.length, end - position));
+                int read = channel.read(view, position);
+                if (read < 0) {
+                    throw new IOException("Unexpected end of file at position " + position);
+                }
+                position += read;
+                lastProgress = System.nanoTime();
+                out.write(buffer, 0, read);
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            abort();
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            abort();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            abort();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+        private void finish() {
+            if (done.compareAndSet(false, true)) {
+                release();
+                asyncContext.complete();
+            }
+        }
+
+        /**
+         * End the exchange early; the short body makes Tomcat close the connection
+         */
+        void abort() {
+            if (done.compareAndSet(false, true)) {
+                release();
+                try {
+                    asyncContext.complete();
+                } catch (IllegalStateException e) {
+                    // already completed by the container
+                }
+            }
+        }
+
+        private void release() {
+            activeTransfers.remove(this);
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // nothing left to read
+            }
+        }
+    }
+
+    /**
+     * Copy a file range to a channel. Into a servlet output stream this is not
+     * zero-copy: the JDK reads the file into a heap buffer first.
+     */
+    private void transferTo(FileChannel channel, long start, long end, WritableByteChannel target) throws IOException {
+        long position = start;
+        while (position < end) {
+            long sent = channel.transferTo(position, end - position, target);
+            if (sent <= 0) {
+                throw new IOException("Unexpected end of file at position " + position);
+            }
+            position += sent;
+        }
+    }
+
+    private void writeMultipart(Path file, String contentType, long length, List<long[]> ranges,
+                                boolean head, HttpServletResponse response) throws IOException {
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+        List<byte[]> partHeaders = new ArrayList<>();
+        long contentLength = 0;
+        for (long[] range : ranges) {
+            String partHeader = "\r\n--" + boundary + "\r\n"
+                    + "Content-Type: " + contentType + "\r\n"
+                    + "Content-Range: " + contentRange(range, length) + "\r\n\r\n";
+            byte[] bytes = partHeader.getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(bytes);
+            contentLength += bytes.length + (range[1] - range[0] + 1);
+        }
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += closing.length;
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setHeader(HttpHeaders.CONTENT_LENGTH, String.valueOf(contentLength));
+        if (head) {
+            return;
+        }
+
+        OutputStream out = response.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(out);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (int i = 0; i < ranges.size(); i++) {
+                long[] range = ranges.get(i);
+                out.write(partHeaders.get(i));
+                transferTo(channel, range[0], range[1] + 1, target);
+            }
+        }
+        out.write(closing);
+        out.flush();
+    }
+}
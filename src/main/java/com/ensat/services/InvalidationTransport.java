@@ -0,0 +1,27 @@
+package com.ensat.services;
+
+import com.ensat.dto.CacheInvalidationBatch;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Carries product cache invalidations between nodes. Delivery may be lossy,
+ * duplicated or reordered: batches are versioned, so receivers apply them
+ * idempotently, and cache expiry bounds the effect of a lost one.
+ * Any bean implementing this interface is used by ProductCacheInvalidationService.
+ */
+public interface InvalidationTransport {
+
+    /**
+     * Start receiving batches from peers
+     */
+    void start(Consumer<CacheInvalidationBatch> listener) throws IOException;
+
+    /**
+     * Send a batch to all peers
+     */
+    void publish(CacheInvalidationBatch batch) throws IOException;
+
+    void stop();
+}
@@ -0,0 +1,88 @@
+package com.ensat.services;
+
+import com.ensat.config.FileUploadProperties;
+import com.ensat.dto.FileUploadResult;
+import com.ensat.dto.StoredFile;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Service storing the parts of a multi-file upload, concurrently on the
+ * bounded file I/O executor when parallel uploads are enabled
+ */
+@Service
+public class MultiFileUploadService {
+
+    private static final int PERMIT_BYTES = 1024;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private FileUploadProperties fileUploadProperties;
+
+    @Autowired
+    @Qualifier("fileIoExecutor")
+    private ThreadPoolTaskExecutor fileIoExecutor;
+
+    /**
+     * Store every file and report a result per file, in request order
+     */
+    public List<FileUploadResult> storeAll(MultipartFile[] files) {
+        List<FileUploadResult> results = new ArrayList<>();
+        if (!fileUploadProperties.isParallel()) {
+            for (MultipartFile file : files) {
+                results.add(storeOne(file));
+            }
+            return results;
+        }
+
+        // Each batch may only have maxInFlightBytes of parts being written at once;
+        // a part larger than the whole budget takes all of it
+        int budgetPermits = (int) Math.max(1, Math.min(Integer.MAX_VALUE,
+                fileUploadProperties.getMaxInFlightBytes() / PERMIT_BYTES));
+        Semaphore budget = new Semaphore(budgetPermits);
+
+        List<CompletableFuture<FileUploadResult>> futures = new ArrayList<>();
+        for (MultipartFile file : files) {
+            int permits = (int) Math.max(1, Math.min(budgetPermits, file.getSize() / PERMIT_BYTES));
+            budget.acquireUninterruptibly(permits);
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return storeOne(file);
+                } finally {
+                    budget.release(permits);
+                }
+            }, fileIoExecutor));
+        }
+
+        for (CompletableFuture<FileUploadResult> future : futures) {
+            results.add(future.join());
+        }
+        return results;
+    }
+
+    private FileUploadResult storeOne(MultipartFile file) {
+        String originalFilename = file.getOriginalFilename();
+        if (file.isEmpty()) {
+            return new FileUploadResult(originalFilename, null, 0, null, "Cannot store empty file");
+        }
+        try (InputStream inputStream = file.getInputStream()) {
+            StoredFile stored = fileStorageService.store(inputStream, originalFilename);
+            return new FileUploadResult(originalFilename, stored.getFilename(), stored.getSize(),
+                    stored.getSha256(), null);
+        } catch (IOException | RuntimeException e) {
+            return new FileUploadResult(originalFilename, null, 0, null, e.getMessage());
+        }
+    }
+}
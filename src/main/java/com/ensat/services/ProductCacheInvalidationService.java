@@ -0,0 +1,240 @@
+package com.ensat.services;
+
+import com.ensat.config.ProductCacheProperties;
+import com.ensat.config.VersionedProductCache;
+import com.ensat.dto.CacheInvalidationBatch;
+import com.ensat.entities.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Near-cache coherence across nodes: each node keeps its local product caches,
+ * and product writes are collected, merged per id to the newest version and
+ * published in batches through the configured InvalidationTransport. Peers
+ * drop cached products older than the announced version and clear the list caches.
+ */
+@Service
+public class ProductCacheInvalidationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductCacheInvalidationService.class);
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Integer, CacheInvalidationBatch.Entry> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean listsChanged = new AtomicBoolean();
+    private final AtomicLong missingEpoch = new AtomicLong();
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ProductCacheProperties productCacheProperties;
+
+    @Autowired(required = false)
+    private InvalidationTransport transport;
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (transport != null) {
+            transport.start(this::receive);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        flush();
+    }
+
+    /**
+     * A product was inserted or updated to saved.getVersion()
+     */
+    public void productChanged(Product saved) {
+        productChanged(saved.getId(), saved.getVersion());
+    }
+
+    /**
+     * A product was updated in place to this version
+     */
+    public void productChanged(Integer id, Integer version) {
+        record(new CacheInvalidationBatch.Entry(id, version, false));
+    }
+
+    public void productDeleted(Integer id) {
+        record(new CacheInvalidationBatch.Entry(id, null, true));
+    }
+
+    /**
+     * Products were added without touching cached ones, e.g. by a bulk import
+     */
+    public void listsChanged() {
+        // New products may have ids that were looked up before they existed
+        clearMissing();
+        if (transport != null) {
+            afterCommit(() -> listsChanged.set(true));
+        }
+    }
+
+    private void record(CacheInvalidationBatch.Entry entry) {
+        // Local readers must not cache anything older either
+        VersionedProductCache productCache = productCache();
+        if (productCache != null && entry.isDeleted()) {
+            productCache.invalidate(entry.getId(), null, true);
+        } else if (productCache != null && entry.getVersion() != null) {
+            productCache.invalidate(entry.getId(), entry.getVersion(), false);
+        }
+        if (!entry.isDeleted()) {
+            evictMissing(entry.getId());
+        }
+        if (transport != null) {
+            afterCommit(() -> pending.merge(entry.getId(), entry, ProductCacheInvalidationService::newer));
+        }
+    }
+
+    private static CacheInvalidationBatch.Entry newer(CacheInvalidationBatch.Entry a, CacheInvalidationBatch.Entry b) {
+        if (a.isDeleted()) {
+            return a;
+        }
+        if (b.isDeleted() || a.getVersion() == null) {
+            return b;
+        }
+        return b.getVersion() != null && b.getVersion() > a.getVersion() ? b : a;
+    }
+
+    /**
+     * Peers must not see an invalidation before the write is visible to them
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Publish what was written since the last flush
+     */
+    @Scheduled(fixedDelayString = "${product.cache.invalidation.batch-interval:PT0.05S}")
+    public void flush() {
+        if (transport == null) {
+            return;
+        }
+        int maxBatchSize = productCacheProperties.getInvalidation().getMaxBatchSize();
+        boolean lists = listsChanged.getAndSet(false);
+        CacheInvalidationBatch batch = newBatch(lists);
+        Iterator<Integer> ids = pending.keySet().iterator();
+        while (ids.hasNext()) {
+            CacheInvalidationBatch.Entry entry = pending.remove(ids.next());
+            if (entry == null) {
+                continue;
+            }
+            batch.getEntries().add(entry);
+            if (batch.getEntries().size() >= maxBatchSize) {
+                send(batch);
+                batch = newBatch(lists);
+            }
+        }
+        if (!batch.getEntries().isEmpty() || lists) {
+            send(batch);
+        }
+    }
+
+    private CacheInvalidationBatch newBatch(boolean lists) {
+        CacheInvalidationBatch batch = new CacheInvalidationBatch(nodeId, sequence.incrementAndGet());
+        batch.setListsChanged(lists);
+        return batch;
+    }
+
+    private void send(CacheInvalidationBatch batch) {
+        try {
+            transport.publish(batch);
+        } catch (IOException | RuntimeException e) {
+            // Peers fall back on cache expiry for this batch
+            logger.warn("Failed to publish {} cache invalidations", batch.getEntries().size(), e);
+        }
+    }
+
+    /**
+     * Apply a batch from a peer. Batches are idempotent and commutative, so
+     * duplicates and reordering are harmless.
+     */
+    void receive(CacheInvalidationBatch batch) {
+        if (nodeId.equals(batch.getOrigin())) {
+            return;
+        }
+        VersionedProductCache productCache = productCache();
+        if (productCache != null) {
+            for (CacheInvalidationBatch.Entry entry : batch.getEntries()) {
+                productCache.invalidate(entry.getId(), entry.getVersion(), entry.isDeleted());
+            }
+        }
+        for (CacheInvalidationBatch.Entry entry : batch.getEntries()) {
+            if (!entry.isDeleted()) {
+                evictMissing(entry.getId());
+            }
+        }
+        if (batch.isListsChanged()) {
+            clearMissing();
+        }
+        if (batch.isListsChanged() || !batch.getEntries().isEmpty()) {
+            clearCache("products");
+            clearCache("productPages");
+        }
+    }
+
+    /**
+     * Changes whenever productMissing entries are dropped. A loader that found
+     * no product compares it before and after caching the absence, so an id
+     * created while it was loading is not remembered as missing.
+     */
+    public long missingEpoch() {
+        return missingEpoch.get();
+    }
+
+    private void evictMissing(Integer id) {
+        missingEpoch.incrementAndGet();
+        Cache cache = cacheManager.getCache("productMissing");
+        if (cache != null) {
+            cache.evict(id);
+        }
+    }
+
+    private void clearMissing() {
+        missingEpoch.incrementAndGet();
+        clearCache("productMissing");
+    }
+
+    private void clearCache(String name) {
+        Cache cache = cacheManager.getCache(name);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    private VersionedProductCache productCache() {
+        Cache cache = cacheManager.getCache("product");
+        return cache instanceof VersionedProductCache ? (VersionedProductCache) cache : null;
+    }
+}
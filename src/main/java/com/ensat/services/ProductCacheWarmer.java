@@ -0,0 +1,206 @@
+package com.ensat.services;
+
+import com.ensat.config.ProductWarmupProperties;
+import com.ensat.dto.ProductPage;
+import com.ensat.entities.Product;
+import com.ensat.repositories.ProductRepository;
+import com.github.benmanes.caffeine.cache.Policy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads the hottest products and the first list pages into the caches when a
+ * node starts, so a node added under load does not send every early request
+ * to the database. The hot ids come from a snapshot of the product cache's
+ * most frequently used keys, which every node writes periodically (point
+ * product.warmup.snapshot-path at shared storage to let new nodes use it);
+ * without a snapshot the newest products are loaded.
+ */
+@Service
+public class ProductCacheWarmer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductCacheWarmer.class);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ProductWarmupProperties productWarmupProperties;
+
+    /**
+     * Spring Boot reports readiness (ACCEPTING_TRAFFIC) only after the
+     * ApplicationReadyEvent listeners return, so the probe stays down until
+     * the caches are warm or the timeout passes.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmOnStartup() {
+        if (!productWarmupProperties.isEnabled()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            int products = warmProducts(hotIds());
+            int pages = warmPages();
+            logger.info("Warmed {} products and {} product pages in {} ms",
+                    products, pages, System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            // A cold cache is slower, not broken
+            logger.warn("Product cache warm-up failed", e);
+        }
+    }
+
+    List<Integer> hotIds() {
+        int count = productWarmupProperties.getCount();
+        List<Integer> ids = readSnapshot(count);
+        if (ids.isEmpty() && count > 0) {
+            ids = productRepository.findIdsNewestFirst(PageRequest.of(0, count));
+        }
+        return ids;
+    }
+
+    /**
+     * Load the products in batches on a few threads and put them in the product cache
+     */
+    int warmProducts(List<Integer> ids) {
+        Cache productCache = cacheManager.getCache("product");
+        if (ids.isEmpty() || productCache == null) {
+            return 0;
+        }
+        int batchSize = Math.max(1, productWarmupProperties.getBatchSize());
+        AtomicInteger loaded = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, productWarmupProperties.getThreads()),
+                new CustomizableThreadFactory("product-warmup-"));
+        try {
+            for (int from = 0; from < ids.size(); from += batchSize) {
+                List<Integer> batch = ids.subList(from, Math.min(from + batchSize, ids.size()));
+                executor.execute(() -> {
+                    for (Product product : productRepository.findAllById(batch)) {
+                        productCache.put(product.getId(), product);
+                        loaded.incrementAndGet();
+                    }
+                });
+            }
+            executor.shutdown();
+            if (!executor.awaitTermination(productWarmupProperties.getTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                logger.warn("Product cache warm-up timed out after {} of {} products", loaded.get(), ids.size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+        return loaded.get();
+    }
+
+    private int warmPages() {
+        int pages = 0;
+        Integer afterId = null;
+        while (pages < productWarmupProperties.getPages()) {
+            ProductPage page = productService.listProducts(afterId, ProductServiceImpl.DEFAULT_PAGE_SIZE);
+            pages++;
+            if (page.getNextCursor() == null) {
+                break;
+            }
+            afterId = ProductPage.decodeCursor(page.getNextCursor());
+        }
+        return pages;
+    }
+
+    /**
+     * Record the most frequently used product ids for the next node to start
+     */
+    @Scheduled(fixedDelayString = "${product.warmup.snapshot-interval:PT5M}")
+    @PreDestroy
+    public void writeSnapshot() {
+        String snapshotPath = productWarmupProperties.getSnapshotPath();
+        Cache cache = cacheManager.getCache("product");
+        if (snapshotPath == null || snapshotPath.isEmpty() || !(cache instanceof CaffeineCache)) {
+            return;
+        }
+        Optional<Policy.Eviction<Object, Object>> eviction = ((CaffeineCache) cache).getNativeCache().policy().eviction();
+        if (!eviction.isPresent()) {
+            return;
+        }
+        List<String> lines = new ArrayList<>();
+        for (Object id : eviction.get().hottest(productWarmupProperties.getCount()).keySet()) {
+            lines.add(id.toString());
+        }
+        // An idle node must not replace a useful snapshot with nothing
+        if (lines.isEmpty()) {
+            return;
+        }
+        Path snapshot = Paths.get(snapshotPath);
+        Path tmp = snapshot.resolveSibling(snapshot.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            Files.createDirectories(snapshot.toAbsolutePath().getParent());
+            Files.write(tmp, lines, StandardCharsets.UTF_8);
+            Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Failed to write hot product snapshot {}", snapshot, e);
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+                // Best effort
+            }
+        }
+    }
+
+    private List<Integer> readSnapshot(int count) {
+        List<Integer> ids = new ArrayList<>();
+        String snapshotPath = productWarmupProperties.getSnapshotPath();
+        if (snapshotPath == null || snapshotPath.isEmpty()) {
+            return ids;
+        }
+        Path snapshot = Paths.get(snapshotPath);
+        if (!Files.isRegularFile(snapshot)) {
+            return ids;
+        }
+        try {
+            for (String line : Files.readAllLines(snapshot, StandardCharsets.UTF_8)) {
+                if (ids.size() >= count) {
+                    break;
+                }
+                try {
+                    ids.add(Integer.valueOf(line.trim()));
+                } catch (NumberFormatException e) {
+                    // Skip damaged lines
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to read hot product snapshot {}", snapshot, e);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,126 @@
+package com.ensat.services;
+
+import com.ensat.config.ProductExportProperties;
+import com.ensat.entities.Product;
+import com.ensat.repositories.ProductRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Streaming export of the whole catalog. Rows are read through a database
+ * cursor and written straight to the output, so memory use does not grow
+ * with the table.
+ */
+@Service
+public class ProductExportService {
+
+    public enum Format { CSV, NDJSON }
+
+    private static final int CLEAR_INTERVAL = 1000;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductExportProperties productExportProperties;
+
+    /**
+     * Write every product to the output stream and return the row count
+     */
+    @Transactional(readOnly = true)
+    public long export(OutputStream outputStream, Format format) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(writer);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+
+        if (format == Format.CSV) {
+            writer.write("id,productId,name,price,imagePath,version\n");
+        }
+
+        long count = 0;
+        try (Stream<Product> products = productRepository.streamAllInIdOrder(productExportProperties.getFetchSize())) {
+            Iterator<Product> iterator = products.iterator();
+            while (iterator.hasNext()) {
+                Product product = iterator.next();
+                if (format == Format.CSV) {
+                    writeCsv(writer, product);
+                } else {
+                    writeJson(generator, product);
+                }
+                // Read-only entities are still tracked by the persistence context
+                if (++count % CLEAR_INTERVAL == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+
+        generator.flush();
+        writer.flush();
+        return count;
+    }
+
+    private void writeCsv(Writer writer, Product product) throws IOException {
+        writer.write(String.valueOf(product.getId()));
+        writer.write(',');
+        writer.write(csv(product.getProductId()));
+        writer.write(',');
+        writer.write(csv(product.getName()));
+        writer.write(',');
+        writer.write(product.getPrice() != null ? product.getPrice().toPlainString() : "");
+        writer.write(',');
+        writer.write(csv(product.getImagePath()));
+        writer.write(',');
+        writer.write(product.getVersion() != null ? String.valueOf(product.getVersion()) : "");
+        writer.write('\n');
+    }
+
+    private void writeJson(JsonGenerator generator, Product product) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", product.getId());
+        generator.writeStringField("productId", product.getProductId());
+        generator.writeStringField("name", product.getName());
+        if (product.getPrice() != null) {
+            generator.writeNumberField("price", product.getPrice());
+        } else {
+            generator.writeNullField("price");
+        }
+        generator.writeStringField("imagePath", product.getImagePath());
+        if (product.getVersion() != null) {
+            generator.writeNumberField("version", product.getVersion());
+        }
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -0,0 +1,279 @@
+package com.ensat.services;
+
+import com.ensat.config.ProductImportProperties;
+import com.ensat.dto.ProductImportReport;
+import com.ensat.entities.Product;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming bulk import of products from CSV or NDJSON. Rows are parsed one
+ * line at a time and persisted in JDBC batches, one transaction per chunk.
+ */
+@Service
+public class ProductImportService {
+
+    public enum Format { CSV, NDJSON }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductImportProperties productImportProperties;
+
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    @Autowired
+    private ProductCacheInvalidationService productCacheInvalidationService;
+
+    /**
+     * Import every row of the stream. CSV input needs a header line naming the
+     * columns (productId, name, price, imagePath); quoted fields may not span lines.
+     */
+    public ProductImportReport importProducts(InputStream inputStream, Format format) throws IOException {
+        ProductImportReport report = new ProductImportReport();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int batchSize = Math.max(1, productImportProperties.getBatchSize());
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        List<Row> chunk = new ArrayList<>(batchSize);
+        Map<String, Integer> header = null;
+        long lineNumber = 0;
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            if (format == Format.CSV && header == null) {
+                header = parseHeader(line);
+                continue;
+            }
+            try {
+                Product product = format == Format.CSV ? fromCsv(header, line) : fromJson(line);
+                validate(product);
+                chunk.add(new Row(lineNumber, product));
+            } catch (IllegalArgumentException | IOException e) {
+                addError(report, lineNumber, e.getMessage());
+            }
+            if (chunk.size() >= batchSize) {
+                writeChunk(chunk, report, transactionTemplate);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(chunk, report, transactionTemplate);
+        }
+        return report;
+    }
+
+    /**
+     * Persist a chunk in one transaction. If it fails, the rows are retried one
+     * by one so the report names the rows that are actually bad.
+     */
+    private void writeChunk(List<Row> chunk, ProductImportReport report, TransactionTemplate transactionTemplate) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Row row : chunk) {
+                    entityManager.persist(row.product);
+                }
+                entityManager.flush();
+                entityManager.clear();
+            });
+            report.setImported(report.getImported() + chunk.size());
+            for (Row row : chunk) {
+                productSearchService.index(row.product);
+            }
+        } catch (RuntimeException e) {
+            for (Row row : chunk) {
+                // The rolled back attempt may have assigned an id
+                row.product.setId(null);
+                row.product.setVersion(null);
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        entityManager.persist(row.product);
+                        entityManager.flush();
+                        entityManager.clear();
+                    });
+                    report.setImported(report.getImported() + 1);
+                    productSearchService.index(row.product);
+                } catch (RuntimeException rowException) {
+                    addError(report, row.line, rootMessage(rowException));
+                }
+            }
+        }
+        evictListCaches();
+    }
+
+    private void evictListCaches() {
+        for (String name : new String[]{"products", "productPages"}) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+        productCacheInvalidationService.listsChanged();
+    }
+
+    private void addError(ProductImportReport report, long line, String message) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < productImportProperties.getMaxErrors()) {
+            report.getErrors().add(new ProductImportReport.RowError(line, message));
+        }
+    }
+
+    private Map<String, Integer> parseHeader(String line) {
+        Map<String, Integer> header = new HashMap<>();
+        List<String> columns = parseCsvLine(line);
+        for (int i = 0; i < columns.size(); i++) {
+            header.put(normalize(columns.get(i)), i);
+        }
+        if (!header.containsKey("name")) {
+            throw new IllegalArgumentException("CSV header must contain a name column");
+        }
+        return header;
+    }
+
+    private Product fromCsv(Map<String, Integer> header, String line) {
+        List<String> values = parseCsvLine(line);
+        Product product = new Product();
+        product.setProductId(column(header, values, "productid"));
+        product.setName(column(header, values, "name"));
+        product.setPrice(parsePrice(column(header, values, "price")));
+        product.setImagePath(column(header, values, "imagepath"));
+        return product;
+    }
+
+    private Product fromJson(String line) throws IOException {
+        JsonNode node = objectMapper.readTree(line);
+        if (node == null || !node.isObject()) {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+        Product product = new Product();
+        product.setProductId(text(node, "productId"));
+        product.setName(text(node, "name"));
+        product.setPrice(parsePrice(text(node, "price")));
+        product.setImagePath(text(node, "imagePath"));
+        return product;
+    }
+
+    private void validate(Product product) {
+        if (product.getName() == null || product.getName().trim().isEmpty()) {
+            throw new IllegalArgumentException("Name is required");
+        }
+        if (product.getPrice() != null && product.getPrice().signum() < 0) {
+            throw new IllegalArgumentException("Price must not be negative");
+        }
+    }
+
+    private static BigDecimal parsePrice(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid price: " + value);
+        }
+    }
+
+    private static String column(Map<String, Integer> header, List<String> values, String name) {
+        Integer index = header.get(name);
+        if (index == null || index >= values.size()) {
+            return null;
+        }
+        String value = values.get(index);
+        return value.isEmpty() ? null : value;
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static String normalize(String column) {
+        return column.trim().replace("_", "").replace("-", "").toLowerCase();
+    }
+
+    /**
+     * Split one CSV line, honouring double-quoted fields and "" escapes
+     */
+    static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString().trim());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        values.add(current.toString().trim());
+        return values;
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage();
+    }
+
+    private static class Row {
+        private final long line;
+        private final Product product;
+
+        Row(long line, Product product) {
+            this.line = line;
+            this.product = product;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.ensat.services;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * No product has the requested id; rendered as a 404
+ */
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class ProductNotFoundException extends RuntimeException {
+
+    private final Integer id;
+
+    public ProductNotFoundException(Integer id) {
+        super("Product not found: " + id);
+        this.id = id;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+}
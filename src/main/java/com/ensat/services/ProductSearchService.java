@@ -0,0 +1,329 @@
+package com.ensat.services;
+
+import com.ensat.dto.ProductSearchHit;
+import com.ensat.entities.Product;
+import com.ensat.repositories.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory inverted index over product names and product ids. Terms are kept
+ * in a sorted set, so a query token matches every term it is a prefix of (edge
+ * n-grams without storing them). The index is updated on every product write
+ * and rebuilt from the database in parallel id ranges at startup.
+ */
+@Service
+public class ProductSearchService {
+
+    public static final int MAX_RESULTS = 100;
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchService.class);
+
+    private static final int REBUILD_PAGE_SIZE = 1000;
+    private static final int MAX_TERM_EXPANSION = 1000;
+
+    private final Map<Integer, Document> documents = new ConcurrentHashMap<>();
+    private final Map<String, Set<Integer>> postings = new ConcurrentHashMap<>();
+    // Sorted view of the posting keys for prefix lookups, kept in step by post and unpost
+    private final ConcurrentSkipListSet<String> terms = new ConcurrentSkipListSet<>();
+
+    private volatile boolean ready;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Value("${product.search.rebuild-threads:4}")
+    private int rebuildThreads;
+
+    /**
+     * Add or replace a product in the index
+     */
+    public void index(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        Document document = new Document(product);
+        documents.compute(product.getId(), (id, previous) -> {
+            if (previous != null) {
+                for (String term : previous.terms) {
+                    if (!document.terms.contains(term)) {
+                        unpost(term, id);
+                    }
+                }
+            }
+            for (String term : document.terms) {
+                post(term, id);
+            }
+            return document;
+        });
+    }
+
+    /**
+     * Remove a product from the index
+     */
+    public void remove(Integer productId) {
+        if (productId == null) {
+            return;
+        }
+        documents.computeIfPresent(productId, (id, previous) -> {
+            for (String term : previous.terms) {
+                unpost(term, id);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Products whose name or product id contains a word starting with every
+     * query token, best matches first
+     */
+    public List<ProductSearchHit> search(String query, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Set<Integer> candidates = null;
+        for (String token : tokens) {
+            Set<Integer> matches = prefixMatches(token);
+            if (candidates == null) {
+                candidates = matches;
+            } else {
+                candidates.retainAll(matches);
+            }
+            if (candidates.isEmpty()) {
+                return Collections.emptyList();
+            }
+        }
+
+        int topK = Math.min(Math.max(limit, 1), MAX_RESULTS);
+        Comparator<Scored> order = Comparator.comparingInt((Scored scored) -> scored.score)
+                .thenComparing(scored -> -scored.document.name.length())
+                .thenComparing(scored -> -scored.document.id);
+        PriorityQueue<Scored> best = new PriorityQueue<>(order);
+        for (Integer id : candidates) {
+            Document document = documents.get(id);
+            if (document == null) {
+                continue;
+            }
+            best.add(new Scored(document, score(document, tokens)));
+            if (best.size() > topK) {
+                best.poll();
+            }
+        }
+
+        List<ProductSearchHit> hits = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            hits.add(best.poll().document.toHit());
+        }
+        Collections.reverse(hits);
+        return hits;
+    }
+
+    /**
+     * Distinct suggestions for a partially typed query
+     */
+    public List<ProductSearchHit> autocomplete(String prefix, int limit) {
+        List<ProductSearchHit> suggestions = new ArrayList<>();
+        Set<String> seenNames = new HashSet<>();
+        for (ProductSearchHit hit : search(prefix, MAX_RESULTS)) {
+            if (hit.getName() != null && seenNames.add(hit.getName().toLowerCase(Locale.ROOT))) {
+                suggestions.add(hit);
+                if (suggestions.size() >= Math.min(Math.max(limit, 1), MAX_RESULTS)) {
+                    break;
+                }
+            }
+        }
+        return suggestions;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    /**
+     * Rebuild the index from the database after startup, scanning disjoint id
+     * ranges in parallel
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        Thread rebuild = new Thread(this::rebuild, "product-search-rebuild");
+        rebuild.setDaemon(true);
+        rebuild.start();
+    }
+
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        Integer maxId = productRepository.findMaxId();
+        if (maxId == null) {
+            ready = true;
+            return;
+        }
+
+        int threads = Math.max(1, rebuildThreads);
+        int rangeSize = maxId / threads + 1;
+        AtomicLong indexed = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                int lower = i * rangeSize;
+                int upper = (int) Math.min((long) lower + rangeSize, maxId);
+                futures.add(executor.submit(() -> indexed.addAndGet(indexRange(lower, upper))));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            terms.removeIf(term -> !postings.containsKey(term));
+            logger.info("Product search index rebuilt: {} products in {} ms",
+                    indexed.get(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.warn("Failed to rebuild the product search index", e);
+        } finally {
+            executor.shutdown();
+            ready = true;
+        }
+    }
+
+    private long indexRange(int afterId, int maxId) {
+        long count = 0;
+        int seekId = afterId;
+        while (seekId < maxId) {
+            List<Product> page = productRepository.findByIdGreaterThanAndIdLessThanEqualOrderByIdAsc(
+                    seekId, maxId, PageRequest.of(0, REBUILD_PAGE_SIZE));
+            if (page.isEmpty()) {
+                break;
+            }
+            for (Product product : page) {
+                index(product);
+            }
+            count += page.size();
+            seekId = page.get(page.size() - 1).getId();
+        }
+        return count;
+    }
+
+    private Set<Integer> prefixMatches(String token) {
+        Set<Integer> matches = new HashSet<>();
+        int expanded = 0;
+        for (String term : terms.subSet(token, true, token + Character.MAX_VALUE, true)) {
+            Set<Integer> ids = postings.get(term);
+            if (ids != null) {
+                matches.addAll(ids);
+            }
+            if (++expanded >= MAX_TERM_EXPANSION) {
+                break;
+            }
+        }
+        return matches;
+    }
+
+    private int score(Document document, List<String> tokens) {
+        int score = 0;
+        for (String token : tokens) {
+            score += document.terms.contains(token) ? 2 : 1;
+        }
+        if (document.productId != null && tokens.size() == 1
+                && document.productId.equalsIgnoreCase(tokens.get(0))) {
+            score += 10;
+        }
+        return score;
+    }
+
+    private void post(String term, Integer id) {
+        postings.compute(term, (key, ids) -> {
+            if (ids == null) {
+                ids = ConcurrentHashMap.newKeySet();
+                terms.add(key);
+            }
+            ids.add(id);
+            return ids;
+        });
+    }
+
+    private void unpost(String term, Integer id) {
+        postings.computeIfPresent(term, (key, ids) -> {
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                terms.remove(key);
+                return null;
+            }
+            return ids;
+        });
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static class Document {
+        private final Integer id;
+        private final String productId;
+        private final String name;
+        private final BigDecimal price;
+        private final Set<String> terms = new LinkedHashSet<>();
+
+        Document(Product product) {
+            this.id = product.getId();
+            this.productId = product.getProductId();
+            this.name = product.getName() != null ? product.getName() : "";
+            this.price = product.getPrice();
+            terms.addAll(tokenize(name));
+            terms.addAll(tokenize(productId));
+            if (productId != null && !productId.isEmpty()) {
+                terms.add(productId.toLowerCase(Locale.ROOT));
+            }
+        }
+
+        ProductSearchHit toHit() {
+            return new ProductSearchHit(id, productId, name, price);
+        }
+    }
+
+    private static class Scored {
+        private final Document document;
+        private final int score;
+
+        Scored(Document document, int score) {
+            this.document = document;
+            this.score = score;
+        }
+    }
+}
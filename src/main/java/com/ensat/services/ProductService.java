@@ -1,13 +1,26 @@
 package com.ensat.services;
 
+import com.ensat.dto.ProductPage;
+import com.ensat.dto.ProductView;
+import com.ensat.dto.ProductViewPage;
 import com.ensat.entities.Product;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
 public interface ProductService {
 
     Iterable<Product> listAllProducts();
 
+    ProductPage listProducts(Integer afterId, int size);
+
     Product getProductById(Integer id);
 
+    ProductViewPage listProductViews(Integer afterId, int size, Set<ProductView.Field> fields);
+
+    List<ProductView> getProductViews(Collection<Integer> ids, Set<ProductView.Field> fields);
+
     Product saveProduct(Product product);
 
     void deleteProduct(Integer id);
@@ -1,22 +1,77 @@
 package com.ensat.services;
 
+import com.ensat.dto.ProductPage;
+import com.ensat.dto.ProductView;
+import com.ensat.dto.ProductViewPage;
 import com.ensat.entities.Product;
 import com.ensat.repositories.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Product service implement.
  */
 @Service
 public class ProductServiceImpl implements ProductService {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
      @Autowired
      private ProductRepository productRepository;
 
-    
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    @Autowired
+    private ProductCacheInvalidationService productCacheInvalidationService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Product loads in progress, joined by concurrent lookups of the same id
+    private final ConcurrentMap<Integer, CompletableFuture<Product>> loads = new ConcurrentHashMap<>();
+
+    private Counter loadedCounter;
+    private Counter coalescedCounter;
+    private Counter absentCounter;
+
+    @PostConstruct
+    public void registerMeters() {
+        loadedCounter = loadCounter("loaded", "Product cache misses loaded from the database");
+        coalescedCounter = loadCounter("coalesced", "Product cache misses that waited for another caller's load");
+        absentCounter = loadCounter("absent", "Product loads that found no product");
+    }
+
+    private Counter loadCounter(String result, String description) {
+        return Counter.builder("product.loads")
+                .tag("result", result)
+                .description(description)
+                .register(meterRegistry);
+    }
 
     @Override
     @Cacheable(value = "products")
@@ -24,23 +79,149 @@ public class ProductServiceImpl implements ProductService {
         return productRepository.findAll();
     }
 
+    /**
+     * Seek-by-id page of products. Each (cursor, size) page is cached on its own
+     * so a write only drops pages, which are then reloaded lazily one at a time.
+     * The key uses the clamped size, so out-of-range sizes share one entry.
+     */
+    @Override
+    @Cacheable(value = "productPages",
+            key = "(#afterId ?: 0) + ':' + T(com.ensat.services.ProductServiceImpl).pageSize(#size)")
+    public ProductPage listProducts(Integer afterId, int size) {
+        int pageSize = pageSize(size);
+        int seekId = afterId == null ? 0 : afterId;
+
+        // Fetch one extra row to know whether there is a next page
+        List<Product> rows = productRepository.findByIdGreaterThanOrderByIdAsc(
+                seekId, PageRequest.of(0, pageSize + 1));
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = new ArrayList<>(rows.subList(0, pageSize));
+            nextCursor = ProductPage.encodeCursor(rows.get(pageSize - 1).getId());
+        }
+        return new ProductPage(rows, nextCursor, pageSize);
+    }
+
+    /**
+     * Requested page size clamped to [1, MAX_PAGE_SIZE]
+     */
+    public static int pageSize(int size) {
+        return Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+    }
+
+    /**
+     * Keyset page of products with only the given fields read from the
+     * database; not cached, unlike listProducts.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public ProductViewPage listProductViews(Integer afterId, int size, Set<ProductView.Field> fields) {
+        int pageSize = pageSize(size);
+        int seekId = afterId == null ? 0 : afterId;
+
+        List<ProductView> rows = productRepository.findViewsAfter(seekId, pageSize + 1, fields);
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = new ArrayList<>(rows.subList(0, pageSize));
+            nextCursor = ProductPage.encodeCursor(rows.get(pageSize - 1).getId());
+        }
+        return new ProductViewPage(rows, nextCursor, pageSize);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ProductView> getProductViews(Collection<Integer> ids, Set<ProductView.Field> fields) {
+        return productRepository.findViewsByIds(ids, fields);
+    }
+
+    /**
+     * Cached product by id. On a miss only one caller per id queries the
+     * database and the others wait for its result. Ids without a product are
+     * remembered in the short-lived productMissing cache.
+     *
+     * @throws ProductNotFoundException if there is no such product
+     */
     @Override
-    @Cacheable(value = "product", key = "#id")
     public Product getProductById(Integer id) {
-        return productRepository.findById(id).get();
+        Cache productCache = cacheManager.getCache("product");
+        Cache.ValueWrapper cached = productCache.get(id);
+        if (cached != null && cached.get() != null) {
+            return (Product) cached.get();
+        }
+        Cache missingCache = cacheManager.getCache("productMissing");
+        if (missingCache.get(id) != null) {
+            throw new ProductNotFoundException(id);
+        }
+
+        Product product;
+        CompletableFuture<Product> load = new CompletableFuture<>();
+        CompletableFuture<Product> inFlight = loads.putIfAbsent(id, load);
+        if (inFlight != null) {
+            coalescedCounter.increment();
+            product = await(inFlight);
+        } else {
+            try {
+                long missingEpoch = productCacheInvalidationService.missingEpoch();
+                product = productRepository.findById(id).orElse(null);
+                // Cached before the load is unregistered, so later callers hit the cache
+                if (product != null) {
+                    productCache.put(id, product);
+                    loadedCounter.increment();
+                } else {
+                    missingCache.put(id, Boolean.TRUE);
+                    // Created meanwhile: its eviction may have run before the put
+                    if (productCacheInvalidationService.missingEpoch() != missingEpoch) {
+                        missingCache.evict(id);
+                    }
+                    absentCounter.increment();
+                }
+                load.complete(product);
+            } catch (RuntimeException e) {
+                load.completeExceptionally(e);
+                throw e;
+            } finally {
+                loads.remove(id, load);
+            }
+        }
+        if (product == null) {
+            throw new ProductNotFoundException(id);
+        }
+        return product;
+    }
+
+    private static Product await(CompletableFuture<Product> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
     }
 
     @Override
-    @CachePut(value = "product", key = "#result.id")
-    @CacheEvict(value = "products", allEntries = true)
+    @Caching(
+            put = @CachePut(value = "product", key = "#result.id"),
+            evict = {
+                    @CacheEvict(value = {"products", "productPages"}, allEntries = true),
+                    @CacheEvict(value = "productMissing", key = "#result.id")
+            })
     public Product saveProduct(Product product) {
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        productSearchService.index(saved);
+        productCacheInvalidationService.productChanged(saved);
+        return saved;
     }
 
     @Override
-    @CacheEvict(value = {"product", "products"}, allEntries = true)
+    @CacheEvict(value = {"product", "products", "productPages"}, allEntries = true)
     public void deleteProduct(Integer id) {
         productRepository.deleteById(id);
+        productSearchService.remove(id);
+        productCacheInvalidationService.productDeleted(id);
     }
 
 }
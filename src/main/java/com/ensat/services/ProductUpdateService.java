@@ -0,0 +1,231 @@
+package com.ensat.services;
+
+import com.ensat.config.ProductUpdateProperties;
+import com.ensat.dto.ProductUpdate;
+import com.ensat.dto.ProductUpdateReport;
+import com.ensat.dto.ProductUpdateReport.Result;
+import com.ensat.entities.Product;
+import com.ensat.repositories.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Partial product updates applied in the database. Each update is a single
+ * UPDATE ... WHERE id = ? [AND version = ?] that bumps the version, so there
+ * is no load-modify-save round trip and no merge of the whole entity. A stale
+ * version is reported as a conflict instead of throwing.
+ */
+@Service
+public class ProductUpdateService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductUpdateService.class);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ProductUpdateProperties productUpdateProperties;
+
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    @Autowired
+    private ProductCacheInvalidationService productCacheInvalidationService;
+
+    public ProductUpdateReport update(ProductUpdate update) {
+        return update(Arrays.asList(update), false);
+    }
+
+    /**
+     * Apply a batch of updates in one transaction. With atomic, nothing is kept
+     * unless every update applies. A batch that hits a lock wait timeout or a
+     * deadlock is retried with exponential backoff and jitter.
+     */
+    public ProductUpdateReport update(List<ProductUpdate> updates, boolean atomic) {
+        validate(updates);
+
+        // Rows are locked in id order so that concurrent batches cannot deadlock
+        // each other; the sort is stable, so updates of one id keep their order
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < updates.size(); i++) {
+            order.add(i);
+        }
+        order.sort(Comparator.comparing(i -> updates.get(i).getId()));
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int maxAttempts = Math.max(1, productUpdateProperties.getMaxAttempts());
+        long backoff = productUpdateProperties.getInitialBackoff().toMillis();
+
+        for (int attempt = 1; ; attempt++) {
+            Result[] results = new Result[updates.size()];
+            try {
+                boolean rolledBack = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                    boolean failed = false;
+                    for (int i : order) {
+                        results[i] = apply(updates.get(i));
+                        failed |= results[i].getStatus() != Result.Status.UPDATED;
+                    }
+                    if (atomic && failed) {
+                        status.setRollbackOnly();
+                        return true;
+                    }
+                    return false;
+                }));
+                ProductUpdateReport report = report(results, attempt, rolledBack);
+                if (!rolledBack) {
+                    refreshCaches(results);
+                }
+                return report;
+
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                logger.debug("Product update attempt {} failed, retrying: {}", attempt, e.getMessage());
+                sleep(ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1));
+                backoff = Math.min(backoff * 2, productUpdateProperties.getMaxBackoff().toMillis());
+            }
+        }
+    }
+
+    private Result apply(ProductUpdate update) {
+        Integer id = update.getId();
+        Integer version = update.getVersion();
+        int rows;
+        switch (update.getOp()) {
+            case SET_PRICE:
+                rows = productRepository.updatePrice(id, version, update.getAmount());
+                break;
+            case INCREMENT_PRICE:
+                rows = productRepository.incrementPrice(id, version, update.getAmount());
+                break;
+            default:
+                rows = productRepository.updateName(id, version, update.getName().trim());
+        }
+
+        if (rows > 0) {
+            // A guarded update knows its new version; otherwise read it back, the
+            // row is locked by the update so nobody else has changed it since
+            Integer newVersion = version != null ? version + 1 : productRepository.findVersionById(id);
+            return new Result(id, Result.Status.UPDATED, newVersion);
+        }
+        Integer current = productRepository.findVersionById(id);
+        if (current == null) {
+            return new Result(id, Result.Status.NOT_FOUND, null);
+        }
+        if (version != null && !version.equals(current)) {
+            return new Result(id, Result.Status.CONFLICT, current);
+        }
+        // Only an increment has a further condition: the price cannot go negative
+        return new Result(id, Result.Status.REJECTED, current);
+    }
+
+    private static ProductUpdateReport report(Result[] results, int attempts, boolean rolledBack) {
+        ProductUpdateReport report = new ProductUpdateReport();
+        report.setAttempts(attempts);
+        report.setRolledBack(rolledBack);
+        for (Result result : results) {
+            if (result.getStatus() == Result.Status.UPDATED && !rolledBack) {
+                report.setUpdated(report.getUpdated() + 1);
+            } else if (result.getStatus() != Result.Status.UPDATED) {
+                report.setFailed(report.getFailed() + 1);
+            }
+            report.getResults().add(result);
+        }
+        return report;
+    }
+
+    /**
+     * Replace only the changed products in the product cache and search index.
+     * The list caches hold prices and names too, so they are cleared.
+     */
+    private void refreshCaches(Result[] results) {
+        Map<Integer, Integer> versions = new LinkedHashMap<>();
+        for (Result result : results) {
+            if (result.getStatus() == Result.Status.UPDATED) {
+                versions.merge(result.getId(), result.getVersion(), Math::max);
+            }
+        }
+        if (versions.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<Integer, Integer> entry : versions.entrySet()) {
+            productCacheInvalidationService.productChanged(entry.getKey(), entry.getValue());
+        }
+
+        Cache productCache = cacheManager.getCache("product");
+        for (Product product : productRepository.findAllById(versions.keySet())) {
+            productSearchService.index(product);
+            if (productCache != null) {
+                productCache.put(product.getId(), product);
+            }
+        }
+        for (String name : new String[]{"products", "productPages"}) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+
+    private void validate(List<ProductUpdate> updates) {
+        if (updates == null || updates.isEmpty()) {
+            throw new IllegalArgumentException("No updates given");
+        }
+        if (updates.size() > productUpdateProperties.getMaxBatchSize()) {
+            throw new IllegalArgumentException("At most " + productUpdateProperties.getMaxBatchSize()
+                    + " updates per batch");
+        }
+        for (ProductUpdate update : updates) {
+            if (update == null || update.getId() == null || update.getOp() == null) {
+                throw new IllegalArgumentException("Each update needs an id and an op");
+            }
+            switch (update.getOp()) {
+                case SET_PRICE:
+                    if (update.getAmount() == null || update.getAmount().signum() < 0) {
+                        throw new IllegalArgumentException("Price must not be negative: product " + update.getId());
+                    }
+                    break;
+                case INCREMENT_PRICE:
+                    if (update.getAmount() == null) {
+                        throw new IllegalArgumentException("Amount is required: product " + update.getId());
+                    }
+                    break;
+                default:
+                    if (update.getName() == null || update.getName().trim().isEmpty()) {
+                        throw new IllegalArgumentException("Name is required: product " + update.getId());
+                    }
+            }
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying a product update", e);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.ensat.services;
+
+import com.ensat.dto.ProductPage;
+import com.ensat.entities.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+import org.springframework.ui.Model;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.View;
+import org.springframework.web.servlet.support.RequestContextUtils;
+import org.thymeleaf.spring5.view.ThymeleafViewResolver;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * Cache of rendered Thymeleaf pages with strong ETags. A page is identified by
+ * its template and a key naming the data it shows, down to product ids and
+ * versions, so a product write (which bumps the version) moves readers to a
+ * new entry and ETag without evicting anything. The ETag also covers the
+ * templates, so a deployment with changed templates does not answer 304s
+ * for the old markup, and the request's locale, so a page rendered for one
+ * language is never served or revalidated for another.
+ */
+@Service
+public class RenderedPageService {
+
+    private static final String CONTENT_TYPE = "text/html;charset=UTF-8";
+
+    @Autowired
+    private ThymeleafViewResolver thymeleafViewResolver;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private byte[] templatesDigest;
+
+    @PostConstruct
+    public void digestTemplates() throws IOException {
+        Resource[] templates = new PathMatchingResourcePatternResolver().getResources("classpath*:templates/**/*.html");
+        Arrays.sort(templates, Comparator.comparing(Resource::getDescription));
+        MessageDigest digest = sha256();
+        for (Resource template : templates) {
+            digest.update(template.getDescription().getBytes(StandardCharsets.UTF_8));
+            try (InputStream in = template.getInputStream()) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+        }
+        templatesDigest = digest.digest();
+    }
+
+    /**
+     * Data key of a product detail page
+     */
+    public static String productKey(Product product) {
+        return product.getId() + "@" + product.getVersion();
+    }
+
+    /**
+     * Data key of a product list page: the request's cursor (the template
+     * shows a link to the first page only when there is one) and every
+     * product on the page
+     */
+    public static String pageKey(String cursor, ProductPage page) {
+        StringBuilder key = new StringBuilder()
+                .append(cursor != null ? cursor : "-")
+                .append('|').append(page.getSize())
+                .append('|').append(page.getNextCursor());
+        for (Product product : page.getProducts()) {
+            key.append('|').append(productKey(product));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Strong ETag of the page rendered by viewName in locale from the data
+     * named by dataKey. It is also the page's key in the cache.
+     */
+    public String etag(String viewName, String dataKey, Locale locale) {
+        MessageDigest digest = sha256();
+        digest.update(templatesDigest);
+        digest.update(viewName.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(dataKey.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(locale.toLanguageTag().getBytes(StandardCharsets.UTF_8));
+        StringBuilder etag = new StringBuilder("\"");
+        for (byte b : Arrays.copyOf(digest.digest(), 16)) {
+            etag.append(String.format("%02x", b));
+        }
+        return etag.append('"').toString();
+    }
+
+    /**
+     * Answer a conditional request that still matches with a 304, otherwise
+     * write the page from the cache, rendering it on a miss. Pages are
+     * revalidated on every use, so the browser never shows an outdated one.
+     */
+    public void render(String viewName, String dataKey, Model model, WebRequest webRequest,
+                       HttpServletRequest request, HttpServletResponse response) throws Exception {
+        Locale locale = RequestContextUtils.getLocale(request);
+        String etag = etag(viewName, dataKey, locale);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        // The locale comes from Accept-Language unless a LocaleResolver is configured
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_LANGUAGE);
+        if (webRequest.checkNotModified(etag)) {
+            return;
+        }
+
+        Cache cache = cacheManager.getCache("renderedPages");
+        byte[] body = cache != null
+                ? cache.get(etag, () -> renderToBytes(viewName, locale, model, request, response))
+                : renderToBytes(viewName, locale, model, request, response);
+
+        response.setContentType(CONTENT_TYPE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private byte[] renderToBytes(String viewName, Locale locale, Model model, HttpServletRequest request,
+                                 HttpServletResponse response) throws Exception {
+        View view = thymeleafViewResolver.resolveViewName(viewName, locale);
+        if (view == null) {
+            throw new IllegalStateException("No template for view " + viewName);
+        }
+        BufferedResponse buffered = new BufferedResponse(response);
+        view.render(model.asMap(), request, buffered);
+        return buffered.getContent().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Collects what the template writes instead of sending it
+     */
+    private static class BufferedResponse extends HttpServletResponseWrapper {
+
+        private final CharArrayWriter content = new CharArrayWriter(8192);
+        private final PrintWriter writer = new PrintWriter(content);
+
+        BufferedResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public PrintWriter getWriter() {
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() {
+            writer.flush();
+        }
+
+        String getContent() {
+            writer.flush();
+            return content.toString();
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.ensat.services;
+
+import com.ensat.config.RenditionProperties;
+import com.ensat.events.FileDeletedEvent;
+import com.ensat.events.FileStoredEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Service producing downscaled image renditions. Configured widths are
+ * generated in the background when an image is stored and cached on disk;
+ * a missing rendition is generated on first request, once per key even under
+ * concurrent requests. Decoding is bounded to file.rendition.threads images at
+ * a time: a request that finds every slot busy gets the original and the
+ * rendition is queued for the background instead. When the original is used
+ * for good (it is not wider, or cannot be scaled), a marker file records that
+ * so later requests do not decode it again.
+ */
+@Service
+public class RenditionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RenditionService.class);
+
+    private static final String RENDITIONS_DIR = ".renditions";
+    private static final String ORIGINAL_MARKER = ".original";
+
+    private final Map<String, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private RenditionProperties renditionProperties;
+
+    @Autowired
+    @Qualifier("renditionExecutor")
+    private ThreadPoolTaskExecutor renditionExecutor;
+
+    private Semaphore decodePermits;
+
+    @PostConstruct
+    public void init() {
+        decodePermits = new Semaphore(Math.max(1, renditionProperties.getThreads()));
+    }
+
+    @EventListener
+    public void onFileStored(FileStoredEvent event) {
+        String filename = event.getStoredFile().getFilename();
+        if (!renditionProperties.isEnabled() || !isImage(filename)) {
+            return;
+        }
+        for (Integer width : renditionProperties.getWidths()) {
+            // A replaced image may be wider or readable now
+            deleteQuietly(originalMarker(renditionPath(filename, width)));
+            renderInBackground(filename, width);
+        }
+    }
+
+    private void renderInBackground(String filename, int width) {
+        renditionExecutor.execute(() -> {
+            try {
+                renditionFor(filename, width, true);
+            } catch (IOException e) {
+                logger.warn("Failed to render {} at width {}", filename, width, e);
+            }
+        });
+    }
+
+    @EventListener
+    public void onFileDeleted(FileDeletedEvent event) {
+        for (Integer width : renditionProperties.getWidths()) {
+            Path rendition = renditionPath(event.getFilename(), width);
+            deleteQuietly(rendition);
+            deleteQuietly(originalMarker(rendition));
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Failed to delete {}", path, e);
+        }
+    }
+
+    public static boolean isImage(String filename) {
+        return FileStorageService.determineContentType(filename).startsWith("image/");
+    }
+
+    /**
+     * Path of the smallest configured rendition at least as wide as requested,
+     * or of the original when it is not larger than that or not a readable image
+     */
+    public Path renditionFor(String filename, int requestedWidth) throws IOException {
+        return renditionFor(filename, requestedWidth, false);
+    }
+
+    private Path renditionFor(String filename, int requestedWidth, boolean background) throws IOException {
+        Path original = fileStorageService.load(filename);
+        Integer width = nearestWidth(requestedWidth);
+        if (!renditionProperties.isEnabled() || width == null || !isImage(filename)) {
+            return original;
+        }
+
+        Path rendition = renditionPath(filename, width);
+        if (Files.exists(rendition)) {
+            return rendition;
+        }
+        if (Files.exists(originalMarker(rendition))) {
+            return original;
+        }
+
+        // Single flight: concurrent misses for the same key share one render
+        String key = width + "/" + filename;
+        CompletableFuture<Path> future = new CompletableFuture<>();
+        CompletableFuture<Path> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            return await(existing);
+        }
+        try {
+            if (background) {
+                decodePermits.acquire();
+            } else if (!decodePermits.tryAcquire()) {
+                renderInBackground(filename, width);
+                future.complete(original);
+                return original;
+            }
+            try {
+                future.complete(render(original, rendition, width));
+            } finally {
+                decodePermits.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.complete(original);
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+        } finally {
+            inFlight.remove(key, future);
+        }
+        return await(future);
+    }
+
+    private Integer nearestWidth(int requestedWidth) {
+        List<Integer> widths = renditionProperties.getWidths();
+        Integer best = null;
+        for (Integer width : widths) {
+            if (width >= requestedWidth && (best == null || width < best)) {
+                best = width;
+            }
+        }
+        // Wider than every rendition: the original is the nearest
+        return best;
+    }
+
+    private Path render(Path original, Path rendition, int width) throws IOException {
+        if (Files.exists(rendition)) {
+            return rendition;
+        }
+        BufferedImage source = ImageIO.read(original.toFile());
+        if (source == null || source.getWidth() <= width) {
+            return useOriginal(original, rendition);
+        }
+
+        String format = formatOf(original.getFileName().toString());
+        int height = Math.max(1, (int) Math.round((double) source.getHeight() * width / source.getWidth()));
+        int type = "jpg".equals(format) ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+        BufferedImage scaled = new BufferedImage(width, height, type);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        Files.createDirectories(rendition.getParent());
+        Path tmp = rendition.resolveSibling("." + UUID.randomUUID() + ".tmp");
+        try {
+            if (!ImageIO.write(scaled, format, tmp.toFile())) {
+                return useOriginal(original, rendition);
+            }
+            Files.move(tmp, rendition, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return rendition;
+    }
+
+    /**
+     * Remember that this rendition is the original itself
+     */
+    private static Path useOriginal(Path original, Path rendition) throws IOException {
+        Path marker = originalMarker(rendition);
+        Files.createDirectories(marker.getParent());
+        try {
+            Files.createFile(marker);
+        } catch (FileAlreadyExistsException e) {
+            // Recorded by a concurrent render
+        }
+        return original;
+    }
+
+    private static Path originalMarker(Path rendition) {
+        return rendition.resolveSibling(rendition.getFileName() + ORIGINAL_MARKER);
+    }
+
+    private Path renditionPath(String filename, int width) {
+        return fileStorageService.load(RENDITIONS_DIR).resolve(String.valueOf(width)).resolve(filename);
+    }
+
+    private static String formatOf(String filename) {
+        String contentType = FileStorageService.determineContentType(filename);
+        if ("image/jpeg".equals(contentType)) {
+            return "jpg";
+        }
+        return contentType.substring("image/".length());
+    }
+
+    private static Path await(CompletableFuture<Path> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for rendition", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Failed to render image", e.getCause());
+        }
+    }
+}
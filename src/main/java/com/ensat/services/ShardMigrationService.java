@@ -0,0 +1,102 @@
+package com.ensat.services;
+
+import com.ensat.config.FileUploadProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Online migration of a flat upload directory into the sharded layout. Files
+ * are moved one at a time while the application keeps serving them.
+ */
+@Service
+public class ShardMigrationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardMigrationService.class);
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong moved = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private FileUploadProperties fileUploadProperties;
+
+    @Autowired
+    @Qualifier("fileIoExecutor")
+    private ThreadPoolTaskExecutor fileIoExecutor;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        if (fileUploadProperties.isSharded() && fileUploadProperties.isMigrateOnStartup()) {
+            start();
+        }
+    }
+
+    /**
+     * Start a migration in the background. Returns false when the layout is not
+     * sharded or a migration is already running.
+     */
+    public boolean start() {
+        if (!fileUploadProperties.isSharded() || !running.compareAndSet(false, true)) {
+            return false;
+        }
+        total.set(0);
+        moved.set(0);
+        skipped.set(0);
+        failed.set(0);
+        fileIoExecutor.execute(this::migrate);
+        return true;
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", running.get());
+        status.put("total", total.get());
+        status.put("moved", moved.get());
+        status.put("skipped", skipped.get());
+        status.put("failed", failed.get());
+        return status;
+    }
+
+    private void migrate() {
+        try {
+            List<String> filenames = fileStorageService.listFlatFiles();
+            total.set(filenames.size());
+            logger.info("Migrating {} files into shards", filenames.size());
+            for (String filename : filenames) {
+                try {
+                    if (fileStorageService.migrateToShard(filename)) {
+                        moved.incrementAndGet();
+                    } else {
+                        skipped.incrementAndGet();
+                    }
+                } catch (IOException e) {
+                    failed.incrementAndGet();
+                    logger.warn("Failed to move {} into its shard", filename, e);
+                }
+            }
+            logger.info("Shard migration finished: {}", status());
+        } catch (IOException e) {
+            logger.warn("Shard migration aborted", e);
+        } finally {
+            running.set(false);
+        }
+    }
+}
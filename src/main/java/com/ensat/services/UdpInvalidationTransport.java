@@ -0,0 +1,93 @@
+package com.ensat.services;
+
+import com.ensat.dto.CacheInvalidationBatch;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Sends each batch as one JSON datagram to a static list of peers and listens
+ * on a UDP port for theirs. Several instances on one host just need distinct ports.
+ */
+public class UdpInvalidationTransport implements InvalidationTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(UdpInvalidationTransport.class);
+
+    static final int MAX_DATAGRAM_SIZE = 65000;
+
+    private final int port;
+    private final List<InetSocketAddress> peers;
+    private final ObjectMapper objectMapper;
+
+    private volatile DatagramSocket socket;
+
+    public UdpInvalidationTransport(int port, List<InetSocketAddress> peers, ObjectMapper objectMapper) {
+        this.port = port;
+        this.peers = peers;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void start(Consumer<CacheInvalidationBatch> listener) throws IOException {
+        socket = new DatagramSocket(port);
+        Thread receiver = new Thread(() -> receive(listener), "cache-invalidation-udp");
+        receiver.setDaemon(true);
+        receiver.start();
+        logger.info("Listening for cache invalidations on UDP port {}, peers {}", socket.getLocalPort(), peers);
+    }
+
+    private void receive(Consumer<CacheInvalidationBatch> listener) {
+        byte[] buffer = new byte[MAX_DATAGRAM_SIZE];
+        DatagramSocket current = socket;
+        while (!current.isClosed()) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                current.receive(packet);
+                listener.accept(objectMapper.readValue(packet.getData(), packet.getOffset(), packet.getLength(),
+                        CacheInvalidationBatch.class));
+            } catch (SocketException e) {
+                return; // closed by stop()
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Ignoring malformed cache invalidation from {}", packet.getSocketAddress(), e);
+            }
+        }
+    }
+
+    @Override
+    public void publish(CacheInvalidationBatch batch) throws IOException {
+        byte[] payload = objectMapper.writeValueAsBytes(batch);
+        if (payload.length > MAX_DATAGRAM_SIZE) {
+            throw new IOException("Invalidation batch of " + payload.length + " bytes does not fit in a datagram");
+        }
+        DatagramSocket current = socket;
+        if (current == null) {
+            throw new IOException("Transport not started");
+        }
+        for (InetSocketAddress peer : peers) {
+            current.send(new DatagramPacket(payload, payload.length, peer));
+        }
+    }
+
+    @Override
+    public void stop() {
+        DatagramSocket current = socket;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    /**
+     * Bound port, useful when configured with 0
+     */
+    public int getLocalPort() {
+        return socket.getLocalPort();
+    }
+}
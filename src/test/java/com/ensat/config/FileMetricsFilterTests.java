@@ -0,0 +1,87 @@
+package com.ensat.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileMetricsFilterTests {
+
+    private SimpleMeterRegistry registry;
+    private FileMetricsFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        filter = new FileMetricsFilter(registry);
+        request = new MockHttpServletRequest("GET", "/files/download/report.pdf");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/files/download/{filename:.+}");
+        request.setAsyncSupported(true);
+        response = new MockHttpServletResponse();
+    }
+
+    @Test
+    public void asyncTimeoutIsRecordedWithTimeoutOutcome() throws Exception {
+        FilterChain startsAsync = (req, res) -> {
+            res.setContentLength(1000);
+            req.startAsync();
+        };
+        filter.doFilter(request, response, startsAsync);
+        assertNull(registry.find(FileMetricsFilter.REQUESTS_METRIC).timer());
+
+        // What the container does when the async timeout expires
+        MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(asyncContext));
+        }
+        response.setStatus(503);
+        asyncContext.complete();
+
+        Timer timer = registry.find(FileMetricsFilter.REQUESTS_METRIC).tag("outcome", "timeout").timer();
+        assertNotNull(timer);
+        assertEquals(1, timer.count());
+        assertEquals("503", timer.getId().getTag("status"));
+        assertNull(registry.find(FileMetricsFilter.REQUESTS_METRIC).tag("outcome", "success").timer());
+        // The promised Content-Length was not sent
+        assertNull(registry.find(FileMetricsFilter.BYTES_METRIC).summary());
+    }
+
+    @Test
+    public void completedAsyncDownloadIsRecordedWithSuccessOutcome() throws Exception {
+        FilterChain startsAsync = (req, res) -> {
+            res.setContentLength(1000);
+            req.startAsync();
+        };
+        filter.doFilter(request, response, startsAsync);
+        request.getAsyncContext().complete();
+
+        assertEquals(1, registry.find(FileMetricsFilter.REQUESTS_METRIC).tag("outcome", "success").timer().count());
+        DistributionSummary bytes = registry.find(FileMetricsFilter.BYTES_METRIC).tag("outcome", "success").summary();
+        assertEquals(1000, bytes.totalAmount());
+    }
+
+    @Test
+    public void handlerFailureIsRecordedWithErrorOutcome() {
+        FilterChain fails = (req, res) -> {
+            throw new ServletException("boom");
+        };
+
+        assertThrows(ServletException.class, () -> filter.doFilter(request, response, fails));
+
+        assertEquals(1, registry.find(FileMetricsFilter.REQUESTS_METRIC).tag("outcome", "error").timer().count());
+    }
+}
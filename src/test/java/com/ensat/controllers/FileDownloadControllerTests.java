@@ -0,0 +1,72 @@
+package com.ensat.controllers;
+
+import com.ensat.config.FileUploadProperties;
+import com.ensat.services.CompressedVariantService;
+import com.ensat.services.FileCatalogService;
+import com.ensat.services.FileStorageService;
+import com.ensat.services.FileTransferService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class FileDownloadControllerTests {
+
+    @TempDir
+    Path uploadDir;
+
+    private MockMvc mockMvc;
+    private FileTransferService fileTransferService;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        FileStorageService fileStorageService = new FileStorageService();
+        ReflectionTestUtils.setField(fileStorageService, "uploadPath", uploadDir.toString());
+        ReflectionTestUtils.setField(fileStorageService, "fileUploadProperties", new FileUploadProperties());
+        FileDownloadController downloadController = new FileDownloadController();
+        ReflectionTestUtils.setField(downloadController, "fileStorageService", fileStorageService);
+        fileTransferService = mock(FileTransferService.class);
+        ReflectionTestUtils.setField(downloadController, "fileTransferService", fileTransferService);
+        ReflectionTestUtils.setField(downloadController, "fileCatalogService", mock(FileCatalogService.class));
+        CompressedVariantService compressedVariantService = mock(CompressedVariantService.class);
+        ReflectionTestUtils.setField(downloadController, "compressedVariantService", compressedVariantService);
+        CompressedVariantService.Variant identity = mock(CompressedVariantService.Variant.class);
+        when(compressedVariantService.negotiate(any(), any(), any())).thenReturn(identity);
+        FileUploadController uploadController = new FileUploadController();
+        ReflectionTestUtils.setField(uploadController, "fileStorageService", fileStorageService);
+        mockMvc = MockMvcBuilders.standaloneSetup(downloadController, uploadController).build();
+    }
+
+    @Test
+    public void storedFilesAreServed() throws Exception {
+        Files.write(uploadDir.resolve("notes.txt"), "hello".getBytes());
+
+        mockMvc.perform(get("/files/download/notes.txt")).andExpect(status().isOk());
+        verify(fileTransferService).serve(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void internalFilesInTheUploadDirectoryAreNotServed() throws Exception {
+        // e.g. a hot-product snapshot or catalog written there by an older configuration
+        Files.write(uploadDir.resolve(".hot-products"), "1\n2\n".getBytes());
+
+        mockMvc.perform(get("/files/download/.hot-products")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/files/view/.hot-products")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/files/info/.hot-products")).andExpect(status().isNotFound());
+        mockMvc.perform(delete("/files/delete/.hot-products")).andExpect(status().isNotFound());
+        verifyNoInteractions(fileTransferService);
+        assertTrue(Files.exists(uploadDir.resolve(".hot-products")));
+    }
+}
@@ -0,0 +1,56 @@
+package com.ensat.controllers;
+
+import com.ensat.entities.Product;
+import com.ensat.services.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.math.BigDecimal;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+public class ProductApiControllerTests {
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setUp() {
+        Product product = new Product();
+        product.setId(7);
+        product.setVersion(3);
+        product.setName("Lamp");
+        product.setPrice(new BigDecimal("19.90"));
+        ProductService productService = mock(ProductService.class);
+        when(productService.getProductById(7)).thenReturn(product);
+
+        ProductApiController controller = new ProductApiController();
+        ReflectionTestUtils.setField(controller, "productService", productService);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    public void matchingIfNoneMatchGetsNotModifiedWithoutBody() throws Exception {
+        mockMvc.perform(get("/api/products/7"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
+                .andExpect(jsonPath("$.name").value("Lamp"));
+
+        mockMvc.perform(get("/api/products/7").header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    public void staleIfNoneMatchGetsTheProduct() throws Exception {
+        mockMvc.perform(get("/api/products/7").header(HttpHeaders.IF_NONE_MATCH, "\"2\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(3));
+    }
+}
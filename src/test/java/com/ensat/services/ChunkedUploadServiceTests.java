@@ -0,0 +1,93 @@
+package com.ensat.services;
+
+import com.ensat.config.FileUploadProperties;
+import com.ensat.dto.ChunkedUploadStatus;
+import com.ensat.dto.StoredFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChunkedUploadServiceTests {
+
+    @TempDir
+    Path uploadDir;
+
+    private ChunkedUploadService service;
+    private FileStorageService fileStorageService;
+
+    @BeforeEach
+    public void setUp() {
+        FileUploadProperties properties = new FileUploadProperties();
+        fileStorageService = new FileStorageService();
+        ReflectionTestUtils.setField(fileStorageService, "uploadPath", uploadDir.toString());
+        ReflectionTestUtils.setField(fileStorageService, "fileUploadProperties", properties);
+        ReflectionTestUtils.setField(fileStorageService, "eventPublisher", (ApplicationEventPublisher) event -> { });
+        service = new ChunkedUploadService();
+        ReflectionTestUtils.setField(service, "fileStorageService", fileStorageService);
+        ReflectionTestUtils.setField(service, "fileUploadProperties", properties);
+    }
+
+    @Test
+    public void assemblesChunksReceivedOutOfOrder() throws Exception {
+        ChunkedUploadStatus status = service.initiate("notes.txt", 10, 4L);
+        String uploadId = status.getUploadId();
+        assertEquals(3, status.getChunkCount());
+
+        service.writeChunk(uploadId, 2, stream("89"), null);
+        service.writeChunk(uploadId, 0, stream("0123"), null);
+        assertEquals(2, service.status(uploadId).getReceivedChunks());
+        assertThrows(IllegalStateException.class, () -> service.complete(uploadId));
+
+        service.writeChunk(uploadId, 1, stream("4567"), null);
+        StoredFile stored = service.complete(uploadId);
+
+        assertEquals(10, stored.getSize());
+        assertEquals("0123456789",
+                new String(Files.readAllBytes(fileStorageService.load(stored.getFilename())), StandardCharsets.UTF_8));
+        assertNull(service.status(uploadId));
+    }
+
+    @Test
+    public void rejectsWrongChunkLengthAndChecksum() throws Exception {
+        String uploadId = service.initiate("notes.txt", 10, 4L).getUploadId();
+
+        assertThrows(IllegalArgumentException.class, () -> service.writeChunk(uploadId, 0, stream("012"), null));
+        assertThrows(IllegalArgumentException.class, () -> service.writeChunk(uploadId, 0, stream("0123"), "00"));
+        assertEquals(0, service.status(uploadId).getReceivedChunks());
+    }
+
+    @Test
+    public void failedResendAndDamagedDataAreNotCompleted() throws Exception {
+        String uploadId = service.initiate("notes.txt", 8, 4L).getUploadId();
+        service.writeChunk(uploadId, 0, stream("0123"), null);
+        service.writeChunk(uploadId, 1, stream("4567"), null);
+
+        // A re-sent chunk that fails validation no longer counts as received
+        assertThrows(IllegalArgumentException.class, () -> service.writeChunk(uploadId, 0, stream("abcd"), "00"));
+        assertEquals(1, service.status(uploadId).getReceivedChunks());
+        service.writeChunk(uploadId, 0, stream("0123"), null);
+
+        // Bytes changed behind the marker's back are caught on completion
+        Path data = uploadDir.resolve(".chunked").resolve(uploadId).resolve("data");
+        Files.write(data, "0123x567".getBytes(StandardCharsets.US_ASCII));
+        assertThrows(IllegalStateException.class, () -> service.complete(uploadId));
+        assertEquals(1, service.status(uploadId).getReceivedChunks());
+
+        service.writeChunk(uploadId, 1, stream("4567"), null);
+        assertEquals("01234567", new String(Files.readAllBytes(
+                fileStorageService.load(service.complete(uploadId).getFilename())), StandardCharsets.UTF_8));
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.US_ASCII));
+    }
+}
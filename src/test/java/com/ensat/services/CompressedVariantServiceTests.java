@@ -0,0 +1,107 @@
+package com.ensat.services;
+
+import com.ensat.config.FileDownloadProperties;
+import com.ensat.config.FileUploadProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.StreamUtils;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class CompressedVariantServiceTests {
+
+    @TempDir
+    Path uploadDir;
+
+    @Test
+    public void negotiatesAcceptEncoding() {
+        assertTrue(CompressedVariantService.acceptsEncoding("gzip, deflate, br", "gzip"));
+        assertTrue(CompressedVariantService.acceptsEncoding("br;q=1.0, gzip;q=0.8", "br"));
+        assertFalse(CompressedVariantService.acceptsEncoding("gzip;q=0", "gzip"));
+        assertTrue(CompressedVariantService.acceptsEncoding("*", "gzip"));
+        assertFalse(CompressedVariantService.acceptsEncoding("*, gzip;q=0", "gzip"));
+        assertFalse(CompressedVariantService.acceptsEncoding("identity", "gzip"));
+        assertFalse(CompressedVariantService.acceptsEncoding(null, "gzip"));
+    }
+
+    @Test
+    public void compressesOnlyTextLikeTypes() {
+        assertTrue(CompressedVariantService.isCompressible("a.json"));
+        assertTrue(CompressedVariantService.isCompressible("a.css"));
+        assertFalse(CompressedVariantService.isCompressible("a.png"));
+        assertFalse(CompressedVariantService.isCompressible("a.zip"));
+    }
+
+    @Test
+    public void replacedOriginalIsCompressedAgain() throws Exception {
+        FileStorageService fileStorageService = new FileStorageService();
+        ReflectionTestUtils.setField(fileStorageService, "uploadPath", uploadDir.toString());
+        ReflectionTestUtils.setField(fileStorageService, "fileUploadProperties", new FileUploadProperties());
+        ThreadPoolTaskExecutor executor = mock(ThreadPoolTaskExecutor.class);
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(executor).execute(any(Runnable.class));
+        CompressedVariantService service = new CompressedVariantService();
+        ReflectionTestUtils.setField(service, "fileStorageService", fileStorageService);
+        ReflectionTestUtils.setField(service, "fileDownloadProperties", new FileDownloadProperties());
+        ReflectionTestUtils.setField(service, "precompressExecutor", executor);
+
+        Path original = uploadDir.resolve("a.txt");
+        Files.write(original, repeat("old ").getBytes(StandardCharsets.UTF_8));
+        service.negotiate("a.txt", original, "gzip");
+        assertEquals("gzip", service.negotiate("a.txt", original, "gzip").getEncoding());
+
+        // Replaced with content carrying an older modification time than the variant
+        Files.write(original, repeat("new ").getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(original, FileTime.fromMillis(1000));
+        assertNull(service.negotiate("a.txt", original, "gzip").getEncoding());
+
+        CompressedVariantService.Variant variant = service.negotiate("a.txt", original, "gzip");
+        assertEquals("gzip", variant.getEncoding());
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(variant.getPath()))) {
+            assertEquals(repeat("new "), StreamUtils.copyToString(in, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String repeat(String text) {
+        StringBuilder repeated = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            repeated.append(text);
+        }
+        return repeated.toString();
+    }
+
+    @Test
+    public void fullQueueServesIdentityWithoutCompressingOnTheCaller() throws Exception {
+        FileStorageService fileStorageService = new FileStorageService();
+        ReflectionTestUtils.setField(fileStorageService, "uploadPath", uploadDir.toString());
+        ReflectionTestUtils.setField(fileStorageService, "fileUploadProperties", new FileUploadProperties());
+        ThreadPoolTaskExecutor executor = mock(ThreadPoolTaskExecutor.class);
+        doThrow(new TaskRejectedException("full")).doNothing().when(executor).execute(any(Runnable.class));
+        CompressedVariantService service = new CompressedVariantService();
+        ReflectionTestUtils.setField(service, "fileStorageService", fileStorageService);
+        ReflectionTestUtils.setField(service, "fileDownloadProperties", new FileDownloadProperties());
+        ReflectionTestUtils.setField(service, "precompressExecutor", executor);
+
+        Path original = uploadDir.resolve("b.txt");
+        Files.write(original, repeat("text ").getBytes(StandardCharsets.UTF_8));
+        assertNull(service.negotiate("b.txt", original, "gzip").getEncoding());
+        assertFalse(Files.exists(uploadDir.resolve(".compressed/b.txt.gz")));
+
+        // The dropped job does not block a later attempt
+        service.negotiate("b.txt", original, "gzip");
+        verify(executor, times(2)).execute(any(Runnable.class));
+    }
+}
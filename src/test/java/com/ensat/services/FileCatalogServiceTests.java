@@ -0,0 +1,78 @@
+package com.ensat.services;
+
+import com.ensat.config.FileUploadProperties;
+import com.ensat.dto.FileMetadata;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Page;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileCatalogServiceTests {
+
+    @TempDir
+    Path uploadDir;
+
+    private FileCatalogService service;
+
+    @BeforeEach
+    public void setUp() {
+        FileStorageService fileStorageService = new FileStorageService();
+        ReflectionTestUtils.setField(fileStorageService, "uploadPath", uploadDir.toString());
+        ReflectionTestUtils.setField(fileStorageService, "fileUploadProperties", new FileUploadProperties());
+        service = new FileCatalogService();
+        ReflectionTestUtils.setField(service, "fileStorageService", fileStorageService);
+
+        put("b.txt", 30, 2);
+        put("a.png", 20, 3);
+        put("c.png", 10, 1);
+    }
+
+    @Test
+    public void pagesFollowTheRequestedSortKey() {
+        assertEquals(Arrays.asList("a.png", "b.txt"), names(service.list(null, null, "name", false, 0, 2)));
+        assertEquals(Arrays.asList("c.png"), names(service.list(null, null, "name", false, 1, 2)));
+        assertEquals(Arrays.asList("c.png", "a.png", "b.txt"), names(service.list(null, null, "size", false, 0, 10)));
+        assertEquals(Arrays.asList("a.png", "b.txt"), names(service.list(null, null, "createdAt", true, 0, 2)));
+        assertEquals(3, service.list(null, null, "size", true, 1, 2).getTotalElements());
+    }
+
+    @Test
+    public void filteredPagesCountEveryMatch() {
+        Page<FileMetadata> page = service.list(null, "image/", "size", true, 1, 1);
+
+        assertEquals(Arrays.asList("c.png"), names(page));
+        assertEquals(2, page.getTotalElements());
+        assertEquals(Arrays.asList("b.txt"), names(service.list("B.T", null, "name", false, 0, 10)));
+    }
+
+    @Test
+    public void sizeChangeOnDiskMovesTheEntryInTheSizeIndex() throws Exception {
+        Files.write(uploadDir.resolve("a.png"), new byte[40]);
+        Files.write(uploadDir.resolve("b.txt"), new byte[30]);
+        Files.write(uploadDir.resolve("c.png"), new byte[10]);
+
+        service.reconcile();
+
+        assertEquals(Arrays.asList("c.png", "b.txt", "a.png"), names(service.list(null, null, "size", false, 0, 10)));
+        assertEquals(40, service.get("a.png").getSize());
+        assertEquals(3, service.count());
+    }
+
+    private void put(String name, long size, long createdAt) {
+        ReflectionTestUtils.invokeMethod(service, "put", new FileMetadata(name, null, size,
+                FileStorageService.determineContentType(name), null, createdAt));
+    }
+
+    private static List<String> names(Page<FileMetadata> page) {
+        return page.getContent().stream().map(FileMetadata::getName).collect(Collectors.toList());
+    }
+}
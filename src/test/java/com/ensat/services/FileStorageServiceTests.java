@@ -0,0 +1,86 @@
+package com.ensat.services;
+
+import com.ensat.config.FileUploadProperties;
+import com.ensat.dto.StoredFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileStorageServiceTests {
+
+    @TempDir
+    Path uploadDir;
+
+    private FileStorageService service;
+    private FileUploadProperties properties;
+
+    @BeforeEach
+    public void setUp() {
+        properties = new FileUploadProperties();
+        service = new FileStorageService();
+        ReflectionTestUtils.setField(service, "uploadPath", uploadDir.toString());
+        ReflectionTestUtils.setField(service, "fileUploadProperties", properties);
+        ReflectionTestUtils.setField(service, "eventPublisher", (ApplicationEventPublisher) event -> { });
+    }
+
+    @Test
+    public void storesStreamWithSizeAndDigest() throws Exception {
+        StoredFile stored = service.store(stream("hello"), "greeting.txt");
+
+        assertTrue(stored.getFilename().endsWith(".txt"));
+        assertEquals(5, stored.getSize());
+        assertEquals("2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824", stored.getSha256());
+        assertEquals("hello", new String(Files.readAllBytes(service.load(stored.getFilename())), StandardCharsets.UTF_8));
+        assertEquals(1, service.listAllFiles().size());
+    }
+
+    @Test
+    public void deduplicatesContentAndCountsReferences() throws Exception {
+        properties.setContentAddressed(true);
+
+        StoredFile first = service.store(stream("same bytes"), "a.png");
+        StoredFile second = service.store(stream("same bytes"), "b.png");
+        StoredFile linked = service.addReference(first.getSha256(), "c.png");
+
+        assertEquals(first.getFilename(), second.getFilename());
+        assertFalse(first.isDeduplicated());
+        assertTrue(second.isDeduplicated());
+        assertEquals(first.getFilename(), linked.getFilename());
+        assertEquals(3, service.readReferenceCount(first.getFilename()));
+
+        assertTrue(service.delete(first.getFilename()));
+        assertTrue(service.delete(first.getFilename()));
+        assertTrue(service.exists(first.getFilename()));
+        assertTrue(service.delete(first.getFilename()));
+        assertFalse(service.exists(first.getFilename()));
+        assertNull(service.findByDigest(first.getSha256(), "a.png"));
+    }
+
+    @Test
+    public void resolvesFlatFilesUntilMigratedIntoShards() throws Exception {
+        StoredFile flat = service.store(stream("legacy"), "old.txt");
+        properties.setSharded(true);
+
+        assertEquals(uploadDir.resolve(flat.getFilename()), service.load(flat.getFilename()));
+        StoredFile sharded = service.store(stream("new"), "new.txt");
+        assertEquals(service.shardedPath(sharded.getFilename()), service.load(sharded.getFilename()));
+
+        assertTrue(service.migrateToShard(flat.getFilename()));
+        assertEquals(service.shardedPath(flat.getFilename()), service.load(flat.getFilename()));
+        assertTrue(service.listFlatFiles().isEmpty());
+        assertEquals(2, service.listAllFiles().size());
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,41 @@
+package com.ensat.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileTransferServiceTests {
+
+    @Test
+    public void parsesSingleAndSuffixRanges() {
+        List<long[]> ranges = FileTransferService.parseRanges("bytes=0-99,-10,950-", 1000, 16);
+        assertEquals(3, ranges.size());
+        assertArrayEquals(new long[]{0, 99}, ranges.get(0));
+        assertArrayEquals(new long[]{990, 999}, ranges.get(1));
+        assertArrayEquals(new long[]{950, 999}, ranges.get(2));
+    }
+
+    @Test
+    public void clampsEndAndDropsUnsatisfiableRanges() {
+        assertArrayEquals(new long[]{500, 999}, FileTransferService.parseRanges("bytes=500-5000", 1000, 16).get(0));
+        assertTrue(FileTransferService.parseRanges("bytes=1000-", 1000, 16).isEmpty());
+    }
+
+    @Test
+    public void ignoresMalformedOrExcessiveRanges() {
+        assertNull(FileTransferService.parseRanges("items=0-1", 1000, 16));
+        assertNull(FileTransferService.parseRanges("bytes=5-1", 1000, 16));
+        assertNull(FileTransferService.parseRanges("bytes=a-b", 1000, 16));
+        assertNull(FileTransferService.parseRanges("bytes=0-1,2-3,4-5", 1000, 2));
+    }
+
+    @Test
+    public void matchesWeakAndListedEtags() {
+        String etag = FileTransferService.etagOf(1000, 42);
+        assertTrue(FileTransferService.matchesEtag("\"x\", W/" + etag, etag));
+        assertTrue(FileTransferService.matchesEtag("*", etag));
+        assertFalse(FileTransferService.matchesEtag("\"other\"", etag));
+    }
+}
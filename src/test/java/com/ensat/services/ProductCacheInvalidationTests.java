@@ -0,0 +1,77 @@
+package com.ensat.services;
+
+import com.ensat.config.VersionedProductCache;
+import com.ensat.dto.CacheInvalidationBatch;
+import com.ensat.entities.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductCacheInvalidationTests {
+
+    @Test
+    public void staleVersionsAreNeverCachedAgain() {
+        VersionedProductCache cache = new VersionedProductCache("product", Caffeine.newBuilder().build(),
+                true, Duration.ofMinutes(1), 1000);
+
+        cache.put(1, product(1, 5));
+        cache.invalidate(1, 4, false); // late message about an older write
+        assertEquals(5, ((Product) cache.get(1).get()).getVersion());
+
+        cache.invalidate(1, 6, false);
+        assertNull(cache.get(1));
+
+        cache.put(1, product(1, 5)); // read that raced with the write
+        assertNull(cache.get(1));
+        cache.put(1, product(1, 6));
+        assertEquals(6, ((Product) cache.get(1).get()).getVersion());
+
+        cache.invalidate(1, null, true);
+        cache.put(1, product(1, 7));
+        assertNull(cache.get(1));
+    }
+
+    @Test
+    public void udpTransportDeliversBatchesBetweenInstances() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        BlockingQueue<CacheInvalidationBatch> received = new LinkedBlockingQueue<>();
+
+        UdpInvalidationTransport nodeA = new UdpInvalidationTransport(0, Collections.emptyList(), objectMapper);
+        nodeA.start(received::add);
+        UdpInvalidationTransport nodeB = new UdpInvalidationTransport(0,
+                Collections.singletonList(new InetSocketAddress("127.0.0.1", nodeA.getLocalPort())), objectMapper);
+        nodeB.start(batch -> { });
+        try {
+            CacheInvalidationBatch batch = new CacheInvalidationBatch("node-b", 1);
+            batch.getEntries().add(new CacheInvalidationBatch.Entry(42, 3, false));
+            batch.getEntries().add(new CacheInvalidationBatch.Entry(43, null, true));
+            nodeB.publish(batch);
+
+            CacheInvalidationBatch delivered = received.poll(5, TimeUnit.SECONDS);
+            assertNotNull(delivered);
+            assertEquals("node-b", delivered.getOrigin());
+            assertEquals(2, delivered.getEntries().size());
+            assertEquals(3, delivered.getEntries().get(0).getVersion());
+            assertTrue(delivered.getEntries().get(1).isDeleted());
+        } finally {
+            nodeA.stop();
+            nodeB.stop();
+        }
+    }
+
+    private static Product product(int id, int version) {
+        Product product = new Product();
+        product.setId(id);
+        product.setVersion(version);
+        return product;
+    }
+}
@@ -0,0 +1,65 @@
+package com.ensat.services;
+
+import com.ensat.config.ProductWarmupProperties;
+import com.ensat.repositories.ProductRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class ProductCacheWarmerTests {
+
+    @TempDir
+    Path dir;
+
+    private ProductCacheWarmer warmer;
+    private ProductRepository repository;
+    private CaffeineCacheManager cacheManager;
+    private ProductWarmupProperties properties;
+
+    @BeforeEach
+    public void setUp() {
+        repository = mock(ProductRepository.class);
+        cacheManager = new CaffeineCacheManager("product");
+        cacheManager.setCaffeine(Caffeine.newBuilder().maximumSize(100));
+        properties = new ProductWarmupProperties();
+        properties.setSnapshotPath(dir.resolve(".hot-products").toString());
+        warmer = new ProductCacheWarmer();
+        ReflectionTestUtils.setField(warmer, "productRepository", repository);
+        ReflectionTestUtils.setField(warmer, "cacheManager", cacheManager);
+        ReflectionTestUtils.setField(warmer, "productWarmupProperties", properties);
+    }
+
+    @Test
+    public void snapshotOfHotIdsIsReadBackOnStartup() throws Exception {
+        warmer.writeSnapshot();
+        assertFalse(Files.exists(dir.resolve(".hot-products")));
+
+        cacheManager.getCache("product").put(1, "one");
+        cacheManager.getCache("product").put(2, "two");
+        warmer.writeSnapshot();
+
+        List<Integer> ids = warmer.hotIds();
+        assertEquals(2, ids.size());
+        assertTrue(ids.containsAll(Arrays.asList(1, 2)));
+        verify(repository, never()).findIdsNewestFirst(any());
+    }
+
+    @Test
+    public void newestProductsAreLoadedWithoutSnapshot() {
+        when(repository.findIdsNewestFirst(any())).thenReturn(Arrays.asList(9, 8));
+
+        assertEquals(Arrays.asList(9, 8), warmer.hotIds());
+    }
+}
@@ -0,0 +1,67 @@
+package com.ensat.services;
+
+import com.ensat.dto.ProductSearchHit;
+import com.ensat.entities.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductSearchServiceTests {
+
+    private ProductSearchService service;
+
+    @BeforeEach
+    public void setUp() {
+        service = new ProductSearchService();
+        service.index(product(1, "SKU-100", "Red Running Shoes"));
+        service.index(product(2, "SKU-200", "Blue Running Jacket"));
+        service.index(product(3, "SKU-300", "Red Rain Jacket"));
+    }
+
+    @Test
+    public void matchesEveryTokenByPrefix() {
+        List<ProductSearchHit> hits = service.search("red jack", 10);
+
+        assertEquals(1, hits.size());
+        assertEquals(3, hits.get(0).getId());
+        assertEquals(2, service.search("run", 10).size());
+        assertEquals(2, service.search("sku-200", 10).get(0).getId());
+    }
+
+    @Test
+    public void reindexesAndRemovesProducts() {
+        service.index(product(1, "SKU-100", "Green Walking Shoes"));
+        assertTrue(service.search("red shoes", 10).isEmpty());
+        assertEquals(1, service.search("walk", 10).size());
+
+        service.remove(3);
+        assertTrue(service.search("rain", 10).isEmpty());
+
+        // Terms left without products are dropped, not kept for prefix expansion
+        Set<?> terms = (Set<?>) ReflectionTestUtils.getField(service, "terms");
+        assertFalse(terms.contains("red"));
+        assertFalse(terms.contains("rain"));
+        assertTrue(terms.contains("walking"));
+    }
+
+    @Test
+    public void limitsAutocompleteSuggestions() {
+        assertEquals(1, service.autocomplete("r", 1).size());
+        assertEquals(3, service.autocomplete("r", 10).size());
+    }
+
+    private static Product product(int id, String productId, String name) {
+        Product product = new Product();
+        product.setId(id);
+        product.setProductId(productId);
+        product.setName(name);
+        product.setPrice(BigDecimal.TEN);
+        return product;
+    }
+}
@@ -0,0 +1,134 @@
+package com.ensat.services;
+
+import com.ensat.dto.ProductPage;
+import com.ensat.dto.ProductView;
+import com.ensat.dto.ProductViewPage;
+import com.ensat.entities.Product;
+import com.ensat.repositories.ProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ProductServiceTests {
+
+    private ProductServiceImpl service;
+    private ProductRepository repository;
+    private MeterRegistry registry;
+    private ProductCacheInvalidationService invalidationService;
+
+    @BeforeEach
+    public void setUp() {
+        repository = mock(ProductRepository.class);
+        registry = new SimpleMeterRegistry();
+        service = new ProductServiceImpl();
+        ReflectionTestUtils.setField(service, "productRepository", repository);
+        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager("product", "productMissing");
+        invalidationService = new ProductCacheInvalidationService();
+        ReflectionTestUtils.setField(invalidationService, "cacheManager", cacheManager);
+        ReflectionTestUtils.setField(service, "cacheManager", cacheManager);
+        ReflectionTestUtils.setField(service, "productCacheInvalidationService", invalidationService);
+        ReflectionTestUtils.setField(service, "meterRegistry", registry);
+        service.registerMeters();
+    }
+
+    @Test
+    public void concurrentMissesShareOneLoad() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Product product = new Product();
+        product.setId(7);
+        when(repository.findById(7)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.of(product);
+        });
+
+        int callers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<Product>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> service.getProductById(7)));
+            }
+            // Every caller is either loading or waiting for the load
+            long deadline = System.currentTimeMillis() + 5000;
+            while (count("coalesced") < callers - 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+            for (Future<Product> result : results) {
+                assertSame(product, result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(repository, times(1)).findById(7);
+        assertEquals(1, count("loaded"));
+        assertEquals(callers - 1, count("coalesced"));
+        assertSame(product, service.getProductById(7));
+    }
+
+    @Test
+    public void missingIdsAreCachedAsAbsent() {
+        when(repository.findById(404)).thenReturn(Optional.empty());
+
+        assertThrows(ProductNotFoundException.class, () -> service.getProductById(404));
+        assertThrows(ProductNotFoundException.class, () -> service.getProductById(404));
+
+        verify(repository, times(1)).findById(404);
+        assertEquals(1, count("absent"));
+    }
+
+    @Test
+    public void idCreatedDuringAMissingLoadIsNotCachedAsAbsent() {
+        Product product = new Product();
+        product.setId(8);
+        product.setVersion(0);
+        // The product is saved after the lookup read nothing, but before it cached the absence
+        when(repository.findById(8)).thenAnswer(invocation -> {
+            invalidationService.productChanged(product);
+            return Optional.empty();
+        }).thenReturn(Optional.of(product));
+
+        assertThrows(ProductNotFoundException.class, () -> service.getProductById(8));
+        assertSame(product, service.getProductById(8));
+    }
+
+    @Test
+    public void viewPageFetchesOneExtraRowForTheCursor() {
+        Set<ProductView.Field> fields = ProductView.Field.parse("name");
+        List<ProductView> rows = new ArrayList<>();
+        for (int id = 11; id <= 13; id++) {
+            ProductView view = new ProductView();
+            view.setId(id);
+            rows.add(view);
+        }
+        when(repository.findViewsAfter(10, 3, fields)).thenReturn(rows);
+
+        ProductViewPage page = service.listProductViews(10, 2, fields);
+
+        assertEquals(2, page.getProducts().size());
+        assertEquals(Integer.valueOf(12), ProductPage.decodeCursor(page.getNextCursor()));
+        assertEquals(EnumSet.of(ProductView.Field.ID, ProductView.Field.VERSION, ProductView.Field.NAME), fields);
+    }
+
+    private double count(String result) {
+        return registry.get("product.loads").tag("result", result).counter().count();
+    }
+}
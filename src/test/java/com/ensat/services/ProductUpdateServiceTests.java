@@ -0,0 +1,96 @@
+package com.ensat.services;
+
+import com.ensat.config.ProductUpdateProperties;
+import com.ensat.dto.ProductUpdate;
+import com.ensat.dto.ProductUpdateReport;
+import com.ensat.dto.ProductUpdateReport.Result;
+import com.ensat.repositories.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+public class ProductUpdateServiceTests {
+
+    private ProductUpdateService service;
+    private ProductRepository repository;
+    private PlatformTransactionManager transactionManager;
+    private ProductUpdateProperties properties;
+
+    @BeforeEach
+    public void setUp() {
+        repository = mock(ProductRepository.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        when(repository.findAllById(any())).thenReturn(Collections.emptyList());
+
+        properties = new ProductUpdateProperties();
+        properties.setInitialBackoff(Duration.ofMillis(1));
+        service = new ProductUpdateService();
+        ReflectionTestUtils.setField(service, "productRepository", repository);
+        ReflectionTestUtils.setField(service, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(service, "cacheManager", new ConcurrentMapCacheManager());
+        ReflectionTestUtils.setField(service, "productUpdateProperties", properties);
+        ReflectionTestUtils.setField(service, "productSearchService", new ProductSearchService());
+        ReflectionTestUtils.setField(service, "productCacheInvalidationService", mock(ProductCacheInvalidationService.class));
+    }
+
+    @Test
+    public void reportsConflictsAndRollsBackAtomicBatches() {
+        when(repository.updatePrice(1, 3, new BigDecimal("9.99"))).thenReturn(1);
+        when(repository.updatePrice(2, 3, new BigDecimal("9.99"))).thenReturn(0);
+        when(repository.findVersionById(2)).thenReturn(4);
+
+        ProductUpdateReport report = service.update(Arrays.asList(
+                new ProductUpdate(2, 3, ProductUpdate.Op.SET_PRICE, new BigDecimal("9.99"), null),
+                new ProductUpdate(1, 3, ProductUpdate.Op.SET_PRICE, new BigDecimal("9.99"), null)), true);
+
+        assertTrue(report.isRolledBack());
+        assertEquals(0, report.getUpdated());
+        assertEquals(1, report.getFailed());
+        assertEquals(Result.Status.CONFLICT, report.getResults().get(0).getStatus());
+        assertEquals(4, report.getResults().get(0).getVersion());
+        assertEquals(Result.Status.UPDATED, report.getResults().get(1).getStatus());
+        assertEquals(4, report.getResults().get(1).getVersion());
+        verify(transactionManager).commit(argThat(TransactionStatus::isRollbackOnly));
+    }
+
+    @Test
+    public void retriesBatchesThatHitLockContention() {
+        when(repository.incrementPrice(1, null, new BigDecimal("-1")))
+                .thenThrow(new CannotAcquireLockException("lock wait timeout"))
+                .thenReturn(1);
+        when(repository.findVersionById(1)).thenReturn(8);
+
+        ProductUpdateReport report = service.update(
+                new ProductUpdate(1, null, ProductUpdate.Op.INCREMENT_PRICE, new BigDecimal("-1"), null));
+
+        assertEquals(2, report.getAttempts());
+        assertEquals(1, report.getUpdated());
+        assertEquals(8, report.getResults().get(0).getVersion());
+    }
+
+    @Test
+    public void givesUpAfterMaxAttempts() {
+        properties.setMaxAttempts(2);
+        when(repository.updateName(any(), any(), any())).thenThrow(new CannotAcquireLockException("deadlock"));
+
+        assertThrows(CannotAcquireLockException.class, () -> service.update(
+                new ProductUpdate(1, null, ProductUpdate.Op.RENAME, null, "New name")));
+        verify(repository, times(2)).updateName(1, null, "New name");
+    }
+}
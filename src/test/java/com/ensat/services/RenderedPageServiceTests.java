@@ -0,0 +1,56 @@
+package com.ensat.services;
+
+import com.ensat.dto.ProductPage;
+import com.ensat.entities.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RenderedPageServiceTests {
+
+    private RenderedPageService service;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        service = new RenderedPageService();
+        service.digestTemplates();
+    }
+
+    @Test
+    public void etagChangesWithProductVersion() {
+        String etag = service.etag("productshow", RenderedPageService.productKey(product(1, 0)), Locale.US);
+
+        assertTrue(etag.matches("\"[0-9a-f]{32}\""));
+        assertEquals(etag, service.etag("productshow", RenderedPageService.productKey(product(1, 0)), Locale.US));
+        assertNotEquals(etag, service.etag("productshow", RenderedPageService.productKey(product(1, 1)), Locale.US));
+        assertNotEquals(etag, service.etag("products", RenderedPageService.productKey(product(1, 0)), Locale.US));
+    }
+
+    @Test
+    public void etagChangesWithLocale() {
+        String key = RenderedPageService.productKey(product(1, 0));
+
+        assertNotEquals(service.etag("productshow", key, Locale.US), service.etag("productshow", key, Locale.FRANCE));
+        assertNotEquals(service.etag("productshow", key, Locale.US), service.etag("productshow", key, Locale.UK));
+    }
+
+    @Test
+    public void pageKeyCoversEveryProductAndTheCursor() {
+        ProductPage page = new ProductPage(Arrays.asList(product(1, 0), product(2, 0)), "Mg", 2);
+        ProductPage changed = new ProductPage(Arrays.asList(product(1, 0), product(2, 1)), "Mg", 2);
+
+        assertNotEquals(RenderedPageService.pageKey(null, page), RenderedPageService.pageKey(null, changed));
+        assertNotEquals(RenderedPageService.pageKey(null, page), RenderedPageService.pageKey("MA", page));
+    }
+
+    private static Product product(int id, int version) {
+        Product product = new Product();
+        product.setId(id);
+        product.setVersion(version);
+        return product;
+    }
+}
@@ -0,0 +1,73 @@
+package com.ensat.services;
+
+import com.ensat.config.FileUploadProperties;
+import com.ensat.config.RenditionProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Semaphore;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class RenditionServiceTests {
+
+    @TempDir
+    Path uploadDir;
+
+    private RenditionService service;
+    private ThreadPoolTaskExecutor executor;
+
+    @BeforeEach
+    public void setUp() {
+        FileStorageService fileStorageService = new FileStorageService();
+        ReflectionTestUtils.setField(fileStorageService, "uploadPath", uploadDir.toString());
+        ReflectionTestUtils.setField(fileStorageService, "fileUploadProperties", new FileUploadProperties());
+        executor = mock(ThreadPoolTaskExecutor.class);
+        service = new RenditionService();
+        ReflectionTestUtils.setField(service, "fileStorageService", fileStorageService);
+        ReflectionTestUtils.setField(service, "renditionProperties", new RenditionProperties());
+        ReflectionTestUtils.setField(service, "renditionExecutor", executor);
+        service.init();
+    }
+
+    @Test
+    public void narrowImageIsServedAsOriginalWithoutDecodingAgain() throws Exception {
+        Path original = image("small.png", 100);
+
+        assertEquals(original, service.renditionFor("small.png", 160));
+        assertTrue(Files.exists(uploadDir.resolve(".renditions/160/small.png.original")));
+
+        // Unreadable now, but the recorded outcome is used
+        Files.write(original, new byte[]{1, 2, 3});
+        assertEquals(original, service.renditionFor("small.png", 160));
+    }
+
+    @Test
+    public void busyDecodersFallBackToOriginalAndRenderLater() throws Exception {
+        Path original = image("large.png", 800);
+        Semaphore permits = (Semaphore) ReflectionTestUtils.getField(service, "decodePermits");
+        permits.acquire(permits.availablePermits());
+
+        assertEquals(original, service.renditionFor("large.png", 160));
+        verify(executor).execute(any(Runnable.class));
+
+        permits.release(2);
+        Path rendition = service.renditionFor("large.png", 160);
+        assertEquals(uploadDir.resolve(".renditions/160/large.png"), rendition);
+        assertEquals(160, ImageIO.read(rendition.toFile()).getWidth());
+    }
+
+    private Path image(String name, int width) throws Exception {
+        Path path = uploadDir.resolve(name);
+        ImageIO.write(new BufferedImage(width, width / 2, BufferedImage.TYPE_INT_ARGB), "png", path.toFile());
+        return path;
+    }
+}